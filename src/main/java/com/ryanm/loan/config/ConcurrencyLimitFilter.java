@@ -0,0 +1,129 @@
+package com.ryanm.loan.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ryanm.loan.exception.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sheds load before it queues up. Each traffic class has its own {@link GradientLimiter}, so a burst of
+ * logins (bcrypt-bound) cannot starve reads, and slow writes cannot starve either. Requests over the current
+ * limit are rejected immediately with 503 instead of waiting for a thread and a connection.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private static final Set<String> AUTH_PATHS = Set.of(
+            "/api/v1/users/signup",
+            "/api/v1/users/login",
+            "/api/v1/users/refresh"
+    );
+
+    enum TrafficClass {AUTH, READ, WRITE}
+
+    private final ObjectMapper objectMapper;
+    private final WarmupRequests warmupRequests;
+    private final boolean enabled;
+    private final Map<TrafficClass, GradientLimiter> limiters = new EnumMap<>(TrafficClass.class);
+    private final Map<TrafficClass, Counter> rejections = new EnumMap<>(TrafficClass.class);
+
+    public ConcurrencyLimitFilter(ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  WarmupRequests warmupRequests,
+                                  @Value("${concurrency-limit.enabled:true}") boolean enabled,
+                                  @Value("${concurrency-limit.min-limit:4}") int minLimit,
+                                  @Value("${concurrency-limit.smoothing:0.2}") double smoothing,
+                                  @Value("${concurrency-limit.auth.initial:8}") int authInitial,
+                                  @Value("${concurrency-limit.auth.max:32}") int authMax,
+                                  @Value("${concurrency-limit.read.initial:40}") int readInitial,
+                                  @Value("${concurrency-limit.read.max:150}") int readMax,
+                                  @Value("${concurrency-limit.write.initial:20}") int writeInitial,
+                                  @Value("${concurrency-limit.write.max:80}") int writeMax) {
+        this.objectMapper = objectMapper;
+        this.warmupRequests = warmupRequests;
+        this.enabled = enabled;
+        limiters.put(TrafficClass.AUTH, new GradientLimiter(authInitial, minLimit, authMax, smoothing));
+        limiters.put(TrafficClass.READ, new GradientLimiter(readInitial, minLimit, readMax, smoothing));
+        limiters.put(TrafficClass.WRITE, new GradientLimiter(writeInitial, minLimit, writeMax, smoothing));
+        limiters.forEach((trafficClass, limiter) -> {
+            String tag = trafficClass.name().toLowerCase();
+            Gauge.builder("api.concurrency.limit", limiter, GradientLimiter::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("api.concurrency.in_flight", limiter, GradientLimiter::getInFlight)
+                    .description("Requests currently being processed")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            rejections.put(trafficClass, Counter.builder("api.concurrency.rejected")
+                    .description("Requests shed with 503 because the limit was reached")
+                    .tag("class", tag)
+                    .register(meterRegistry));
+        });
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        // Probes must keep answering while the API is shedding; warm-up latencies would skew the gradient
+        return !enabled || request.getRequestURI().startsWith("/actuator/") || warmupRequests.isWarmup(request);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        TrafficClass trafficClass = classify(request);
+        GradientLimiter limiter = limiters.get(trafficClass);
+        if (!limiter.tryAcquire()) {
+            rejections.get(trafficClass).increment();
+            reject(response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    private static TrafficClass classify(HttpServletRequest request) {
+        if (AUTH_PATHS.contains(request.getRequestURI())) {
+            return TrafficClass.AUTH;
+        }
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) ? TrafficClass.READ : TrafficClass.WRITE;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .code("OVERLOADED")
+                .message("Server is busy, please retry shortly")
+                .build();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+}
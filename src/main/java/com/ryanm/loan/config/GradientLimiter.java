@@ -0,0 +1,68 @@
+package com.ryanm.loan.config;
+
+/**
+ * Concurrency limit that follows latency. A fast-moving average of request time is compared against a slow
+ * one; while they agree the limit grows by a small queue allowance, and once recent requests get slower than
+ * the long-term baseline the limit shrinks in proportion. Not a semaphore: callers check and count in-flight
+ * requests themselves via {@link #tryAcquire()} and {@link #release(long)}.
+ */
+class GradientLimiter {
+    private static final double SHORT_WINDOW = 0.1;
+    private static final double LONG_WINDOW = 0.005;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+
+    private double limit;
+    private double shortRttNanos;
+    private double longRttNanos;
+    private int inFlight;
+
+    GradientLimiter(int initialLimit, int minLimit, int maxLimit, double smoothing) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    synchronized void release(long rttNanos) {
+        int sampledInFlight = inFlight--;
+        if (shortRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) * SHORT_WINDOW;
+        longRttNanos += (rttNanos - longRttNanos) * LONG_WINDOW;
+        // After a sustained change the baseline would otherwise lag far behind; let it catch up quickly
+        if (longRttNanos > shortRttNanos * 2) {
+            longRttNanos *= 0.95;
+        }
+        // Only grow when the limit is actually being used, so an idle period cannot inflate it
+        if (sampledInFlight < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longRttNanos / shortRttNanos));
+        double queueSize = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueSize;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + newLimit * smoothing));
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,316 @@
+package com.ryanm.loan.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ryanm.loan.exception.ErrorResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes retried POSTs safe. The first response for an {@code Idempotency-Key} is kept for a while, scoped to
+ * the authenticated user and the request path, and replayed for any retry without reaching the controller.
+ * Retries that arrive while the first request is still running wait for its result instead of executing
+ * again. Server errors are not kept, so the client can retry those with the same key. Only small, non-multipart
+ * bodies are accepted, since each one is held in memory to fingerprint it.
+ */
+@Slf4j
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String HEADER = "Idempotency-Key";
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private record StoredResponse(int status, String contentType, byte[] body) {
+    }
+
+    private record Entry(byte[] fingerprint, CompletableFuture<StoredResponse> response, long expiresAt) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final long waitMillis;
+    private final int maxEntries;
+    private final int maxBodyBytes;
+    // Insertion order equals expiry order, so the eldest entries are always the first to go
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public IdempotencyFilter(ObjectMapper objectMapper,
+                             @Value("${idempotency.ttl-minutes:1440}") long ttlMinutes,
+                             @Value("${idempotency.max-entries:10000}") int maxEntries,
+                             @Value("${idempotency.wait-timeout-ms:10000}") long waitMillis,
+                             @Value("${idempotency.max-body-bytes:65536}") int maxBodyBytes) {
+        this.objectMapper = objectMapper;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.maxEntries = maxEntries;
+        this.waitMillis = waitMillis;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            // Keys are scoped per user; unauthenticated calls are left to the security chain
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String key = request.getHeader(HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, "INVALID_IDEMPOTENCY_KEY",
+                    HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("multipart/")) {
+            // Every attempt gets a fresh boundary, so a retry could never match the first fingerprint
+            writeError(response, HttpStatus.UNSUPPORTED_MEDIA_TYPE, "IDEMPOTENCY_UNSUPPORTED_BODY",
+                    HEADER + " is not supported for multipart requests");
+            return;
+        }
+        CachedBodyRequest cachedRequest = CachedBodyRequest.read(request, maxBodyBytes);
+        if (cachedRequest == null) {
+            writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "IDEMPOTENCY_BODY_TOO_LARGE",
+                    HEADER + " is only supported for bodies up to " + maxBodyBytes + " bytes");
+            return;
+        }
+        String scope = authentication.getName() + " " + request.getRequestURI() + " " + key;
+        byte[] fingerprint = sha256(cachedRequest.body);
+
+        while (true) {
+            Entry entry;
+            boolean owner = false;
+            synchronized (entries) {
+                evictExpired();
+                entry = entries.get(scope);
+                if (entry == null) {
+                    if (!makeRoom()) {
+                        writeError(response, HttpStatus.SERVICE_UNAVAILABLE, "IDEMPOTENCY_CAPACITY",
+                                "Too many requests with an " + HEADER + " are in progress; retry shortly");
+                        return;
+                    }
+                    entry = new Entry(fingerprint, new CompletableFuture<>(), System.currentTimeMillis() + ttlMillis);
+                    entries.put(scope, entry);
+                    owner = true;
+                }
+            }
+            if (owner) {
+                execute(cachedRequest, response, filterChain, scope, entry);
+                return;
+            }
+            if (!Arrays.equals(entry.fingerprint(), fingerprint)) {
+                writeError(response, HttpStatus.UNPROCESSABLE_ENTITY, "IDEMPOTENCY_KEY_REUSED",
+                        HEADER + " was already used with a different request body");
+                return;
+            }
+            StoredResponse stored;
+            try {
+                stored = entry.response().get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                writeError(response, HttpStatus.CONFLICT, "IDEMPOTENCY_KEY_IN_PROGRESS",
+                        "A request with this " + HEADER + " is still being processed");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (ExecutionException e) {
+                stored = null;
+            }
+            if (stored != null) {
+                log.debug("Replaying stored response for {} {}", request.getRequestURI(), key);
+                replay(stored, response);
+                return;
+            }
+            // The first attempt failed and left nothing behind; try to become the owner
+        }
+    }
+
+    private void execute(CachedBodyRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String scope, Entry entry) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        StoredResponse stored = null;
+        try {
+            filterChain.doFilter(request, wrapper);
+            if (wrapper.getStatus() < 500) {
+                stored = new StoredResponse(wrapper.getStatus(), wrapper.getContentType(),
+                        wrapper.getContentAsByteArray());
+            }
+        } finally {
+            if (stored == null) {
+                synchronized (entries) {
+                    entries.remove(scope, entry);
+                }
+            }
+            entry.response().complete(stored);
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private static void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.expiresAt() > now) {
+                break;
+            }
+            // An in-flight entry stays until its owner finishes
+            if (entry.response().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Drops the eldest finished entries until one more fits; in-flight entries are never dropped, because a
+    // retry would then run the request a second time
+    private boolean makeRoom() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            if (iterator.next().response().isDone()) {
+                iterator.remove();
+            }
+        }
+        return entries.size() < maxEntries;
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String code, String message)
+            throws IOException {
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(status.value())
+                .code(code)
+                .message(message)
+                .build();
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Reads the (small, JSON) body up front so it can be fingerprinted and still be read by the controller
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        // Null when the body is larger than the limit; never reads more than one byte past it
+        static CachedBodyRequest read(HttpServletRequest request, int maxBytes) throws IOException {
+            if (request.getContentLengthLong() > maxBytes) {
+                return null;
+            }
+            byte[] body = request.getInputStream().readNBytes(maxBytes + 1);
+            return body.length > maxBytes ? null : new CachedBodyRequest(request, body);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(@NonNull byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The body is already in memory: all of it is available now, then it is finished
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            listener.onAllDataRead();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() != null
+                    ? Charset.forName(getCharacterEncoding())
+                    : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
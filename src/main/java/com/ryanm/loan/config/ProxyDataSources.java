@@ -0,0 +1,44 @@
+package com.ryanm.loan.config;
+
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+// Shared by the bean post-processors that listen to JDBC: the first one wraps the pool in a single
+// datasource-proxy, later ones add their listener to it, so post-processor order does not matter
+final class ProxyDataSources {
+
+    private ProxyDataSources() {
+    }
+
+    // methodListener may be null for listeners that only need statement callbacks
+    static Object withListeners(Object bean, String beanName, QueryExecutionListener queryListener,
+                                MethodExecutionListener methodListener) {
+        if (bean instanceof ProxyDataSource proxy) {
+            proxy.getProxyConfig().getQueryListener().addListener(queryListener);
+            if (methodListener != null) {
+                proxy.getProxyConfig().getMethodListener().addListener(methodListener);
+            }
+            return proxy;
+        }
+        // Only physical pools are wrapped; routing and delegating data sources would count every statement twice
+        if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)
+                && !(bean instanceof AbstractRoutingDataSource)) {
+            ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(dataSource)
+                    .name(beanName)
+                    .listener(queryListener)
+                    // Result sets are always proxied so a listener added later can still see ResultSet calls
+                    .proxyResultSet();
+            if (methodListener != null) {
+                builder.methodListener(methodListener);
+            }
+            return builder.build();
+        }
+        return bean;
+    }
+}
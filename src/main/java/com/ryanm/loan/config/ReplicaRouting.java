@@ -0,0 +1,128 @@
+package com.ryanm.loan.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether a read-only transaction may use the replica. Two things send it to the primary instead:
+ * the replica lagging more than the allowed maximum (or not answering), and the current user having
+ * committed a write in the last few seconds, so users always read their own writes. Lag is measured with a
+ * heartbeat row written to the primary and read back from the replica. Reads that cannot tolerate any lag
+ * run inside {@link #readFromPrimary(Supplier)}.
+ */
+@Slf4j
+public class ReplicaRouting implements TransactionExecutionListener {
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+    private final long stickyMs;
+    // Username -> time until which their reads stay on the primary
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+    // Set while a read on this thread must see everything the primary has committed
+    private final ThreadLocal<Boolean> primaryOnly = new ThreadLocal<>();
+
+    private volatile boolean replicaUsable;
+    private volatile long lagMs = -1;
+
+    public ReplicaRouting(DataSource primary, DataSource replica, long maxLagMs, long stickyMs,
+                          MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLagMs = maxLagMs;
+        this.stickyMs = stickyMs;
+        Gauge.builder("datasource.replica.lag", this, routing -> routing.lagMs)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    public boolean useReplica() {
+        return replicaUsable && primaryOnly.get() == null && !pinnedToPrimary();
+    }
+
+    /**
+     * Runs work whose read-only queries must use the primary. Connections are fetched lazily, so this holds for
+     * a read-only transaction that has begun but not yet run a statement.
+     */
+    public <T> T readFromPrimary(Supplier<T> work) {
+        if (primaryOnly.get() != null) {
+            return work.get();
+        }
+        primaryOnly.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            primaryOnly.remove();
+        }
+    }
+
+    // True while the current user's own recent writes may not have reached the replica yet
+    public boolean pinnedToPrimary() {
+        String user = currentUser();
+        if (user == null) {
+            return false;
+        }
+        Long until = stickyUntil.get(user);
+        if (until == null) {
+            return false;
+        }
+        if (until > System.currentTimeMillis()) {
+            return true;
+        }
+        stickyUntil.remove(user, until);
+        return false;
+    }
+
+    // Read-write transactions that commit on a request thread pin that user's reads to the primary for a while
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        if (commitFailure != null || transaction.isReadOnly()) {
+            return;
+        }
+        String user = currentUser();
+        if (user != null) {
+            stickyUntil.put(user, System.currentTimeMillis() + stickyMs + Math.max(0, lagMs));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.heartbeat-ms:1000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        boolean usable;
+        try {
+            primary.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", new Timestamp(now));
+            Timestamp seen = replica.queryForObject("SELECT beat_at FROM replica_heartbeat WHERE id = 1", Timestamp.class);
+            lagMs = seen != null ? Math.max(0, now - seen.getTime()) : Long.MAX_VALUE;
+            usable = lagMs <= maxLagMs;
+        } catch (RuntimeException e) {
+            log.debug("Replica heartbeat failed: {}", e.getMessage());
+            lagMs = -1;
+            usable = false;
+        }
+        if (usable != replicaUsable) {
+            log.info(usable
+                    ? "Replica in sync (lag {} ms); read-only transactions use it"
+                    : "Replica unavailable or lagging (lag {} ms); read-only transactions use the primary", lagMs);
+        }
+        replicaUsable = usable;
+        long cutoff = System.currentTimeMillis();
+        stickyUntil.values().removeIf(until -> until <= cutoff);
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.ryanm.loan.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// The replica for read-only transactions that ReplicaRouting allows on it, the primary for everything else. The
+// transaction's own read-only flag decides, not the connection's: Hibernate only sets the latter when it keeps
+// connections for the whole session, which replica routing turns off
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private enum Target {PRIMARY, REPLICA}
+
+    private final ReplicaRouting routing;
+
+    ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaRouting routing) {
+        this.routing = routing;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && routing.useReplica()
+                ? Target.REPLICA : Target.PRIMARY;
+    }
+}
@@ -1,8 +1,10 @@
 package com.ryanm.loan.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -22,6 +24,8 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtFilter jwtFilter;
+    private final IdempotencyFilter idempotencyFilter;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
     private final UserDetailsService userDetailsService;
     private final PasswordEncoder passwordEncoder;
 
@@ -32,6 +36,8 @@ public class SecurityConfig {
             .ignoringRequestMatchers("/h2-console/**")
             .disable())
             .authorizeHttpRequests(auth -> auth
+                // Async dispatches continue a request that was already authorized (SSE streams)
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers(
                     "/api/v1/users/signup",
                     "/api/v1/users/login",
@@ -39,16 +45,23 @@ public class SecurityConfig {
                     "/api/v1/users/logout",
                     "/swagger-ui/**",
                     "/v3/api-docs/**",
-                    "/h2-console/**"
+                    "/h2-console/**",
+                    "/actuator/health/**"
                 ).permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/v1/users/images/**").permitAll()
                 .requestMatchers("/api/v1/loans/**").authenticated()
                 .requestMatchers("/api/v1/users/**").authenticated()
+                .requestMatchers("/api/v1/analytics/**").authenticated()
+                .requestMatchers("/actuator/**").authenticated()
             )
             .sessionManagement(session -> session
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             )
             .authenticationProvider(authenticationProvider())
-            .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+            // Shed excess load before spending anything on token validation
+            .addFilterBefore(concurrencyLimitFilter, JwtFilter.class)
+            .addFilterAfter(idempotencyFilter, JwtFilter.class);
 
         return http.build();
     }
@@ -0,0 +1,60 @@
+package com.ryanm.loan.config;
+
+/**
+ * Per-thread tally of the JDBC work done on behalf of one unit of work (normally one HTTP request). The
+ * datasource proxy feeds it; nothing is counted on a thread that has not called {@link #start()}, so
+ * schedulers and background pools never accumulate counters.
+ */
+public final class SqlStatistics {
+    public static final String REQUEST_ATTRIBUTE = SqlStatistics.class.getName();
+
+    public record Snapshot(long statements, long rows, long elapsedMillis) {
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0);
+    }
+
+    private static final class Counters {
+        long statements;
+        long rows;
+        long elapsedMillis;
+    }
+
+    private static final ThreadLocal<Counters> CURRENT = new ThreadLocal<>();
+
+    private SqlStatistics() {
+    }
+
+    public static void start() {
+        CURRENT.set(new Counters());
+    }
+
+    public static Snapshot current() {
+        Counters counters = CURRENT.get();
+        return counters != null ? snapshot(counters) : Snapshot.EMPTY;
+    }
+
+    public static Snapshot stop() {
+        Counters counters = CURRENT.get();
+        CURRENT.remove();
+        return counters != null ? snapshot(counters) : Snapshot.EMPTY;
+    }
+
+    // One database round trip; a JDBC batch counts once however many rows it carries
+    static void recordStatement(long elapsedMillis) {
+        Counters counters = CURRENT.get();
+        if (counters != null) {
+            counters.statements++;
+            counters.elapsedMillis += elapsedMillis;
+        }
+    }
+
+    static void recordRow() {
+        Counters counters = CURRENT.get();
+        if (counters != null) {
+            counters.rows++;
+        }
+    }
+
+    private static Snapshot snapshot(Counters counters) {
+        return new Snapshot(counters.statements, counters.rows, counters.elapsedMillis);
+    }
+}
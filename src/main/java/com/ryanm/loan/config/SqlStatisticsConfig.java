@@ -0,0 +1,36 @@
+package com.ryanm.loan.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// Wraps the DataSource in datasource-proxy and registers the per-request SQL statistics filter
+@Configuration
+@ConditionalOnProperty(name = "sql-stats.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatisticsConfig {
+
+    @Bean
+    public static BeanPostProcessor sqlStatisticsDataSourcePostProcessor() {
+        SqlStatisticsListener listener = new SqlStatisticsListener();
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return ProxyDataSources.withListeners(bean, beanName, listener, listener);
+            }
+        };
+    }
+
+    // Not a @Component: it must run before Spring Security, which a plain filter bean would not guarantee
+    @Bean
+    public FilterRegistrationBean<SqlStatisticsFilter> sqlStatisticsFilter(
+            @Value("${sql-stats.headers-enabled:false}") boolean headersEnabled) {
+        FilterRegistrationBean<SqlStatisticsFilter> registration =
+                new FilterRegistrationBean<>(new SqlStatisticsFilter(headersEnabled));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -0,0 +1,66 @@
+package com.ryanm.loan.config;
+
+import com.ryanm.loan.service.LoanDocumentService;
+import com.ryanm.loan.service.ProfileImageService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements, rows and JDBC time spent on each request and logs them at debug level. The
+ * totals are kept as a request attribute (read by the query budget tests) and, when
+ * {@code sql-stats.headers-enabled} is on, returned as response headers. Registered ahead of the security
+ * chain so the user lookup in {@link JwtFilter} is part of the count.
+ */
+@Slf4j
+public class SqlStatisticsFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String ROWS_HEADER = "X-SQL-Rows";
+    public static final String TIME_HEADER = "X-SQL-Time-Ms";
+
+    private final boolean headersEnabled;
+
+    public SqlStatisticsFilter(boolean headersEnabled) {
+        this.headersEnabled = headersEnabled;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        // Headers must be set before the body commits the response, so buffer it; never for streams or files
+        ContentCachingResponseWrapper buffered = headersEnabled && canBuffer(request)
+                ? new ContentCachingResponseWrapper(response)
+                : null;
+        SqlStatistics.start();
+        try {
+            filterChain.doFilter(request, buffered != null ? buffered : response);
+        } finally {
+            SqlStatistics.Snapshot stats = SqlStatistics.stop();
+            request.setAttribute(SqlStatistics.REQUEST_ATTRIBUTE, stats);
+            log.debug("{} {}: {} SQL statements, {} rows, {} ms in JDBC", request.getMethod(),
+                    request.getRequestURI(), stats.statements(), stats.rows(), stats.elapsedMillis());
+            if (buffered != null) {
+                buffered.setHeader(STATEMENTS_HEADER, Long.toString(stats.statements()));
+                buffered.setHeader(ROWS_HEADER, Long.toString(stats.rows()));
+                buffered.setHeader(TIME_HEADER, Long.toString(stats.elapsedMillis()));
+                buffered.copyBodyToResponse();
+            }
+        }
+    }
+
+    private static boolean canBuffer(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return (accept == null || !accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE))
+                && !request.getRequestURI().startsWith(ProfileImageService.URL_PREFIX)
+                && !request.getRequestURI().endsWith(LoanDocumentService.CONTENT_PATH_SUFFIX);
+    }
+}
@@ -0,0 +1,172 @@
+package com.ryanm.loan.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ryanm.loan.dto.AuthResponse;
+import com.ryanm.loan.dto.LoanApplicationRequest;
+import com.ryanm.loan.dto.LoanResponse;
+import com.ryanm.loan.dto.UserLoginRequest;
+import com.ryanm.loan.dto.UserResponse;
+import com.ryanm.loan.repository.LoanRepository;
+import com.ryanm.loan.repository.UserRepository;
+import com.ryanm.loan.service.JwtService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Runs the hot paths with synthetic input before the instance takes traffic, so the JIT has compiled them
+ * by the time real requests arrive. Spring Boot only reports readiness (ACCEPTING_TRAFFIC on
+ * /actuator/health/readiness) once all application runners have returned, so the probe stays DOWN for as
+ * long as this runs. Nothing is written to the database: queries run in a read-only transaction that is
+ * rolled back, and the HTTP requests are rejected by validation before reaching a service. Those requests carry
+ * the {@link WarmupRequests} header, so their errors are not counted and they do not feed the concurrency
+ * limiter or the request metrics.
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class StartupWarmup implements ApplicationRunner {
+    private static final String SYNTHETIC_EMAIL = "warmup@localhost.invalid";
+    private static final String INVALID_LOGIN = "{\"email\":\"\",\"password\":\"\"}";
+
+    private final JwtService jwtService;
+    private final ObjectMapper objectMapper;
+    private final LoanRepository loanRepository;
+    private final UserRepository userRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final Environment environment;
+    private final WarmupRequests warmupRequests;
+
+    @Value("${warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${warmup.iterations:5000}")
+    private int iterations;
+
+    @Value("${warmup.query-iterations:200}")
+    private int queryIterations;
+
+    @Value("${warmup.http-iterations:100}")
+    private int httpIterations;
+
+    @Value("${warmup.max-duration-ms:20000}")
+    private long maxDurationMs;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + maxDurationMs * 1_000_000;
+        try {
+            int tokens = warmTokensAndJson(deadline);
+            int queries = warmQueries(deadline);
+            int requests = warmHttp(deadline);
+            log.info("Warm-up finished in {} ms: {} token/JSON rounds, {} query rounds, {} HTTP requests",
+                    (System.nanoTime() - start) / 1_000_000, tokens, queries, requests);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Warm-up interrupted after {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            // A failed warm-up only means a slower first minute; never keep the instance out of service for it
+            log.warn("Warm-up aborted after {} ms: {}", (System.nanoTime() - start) / 1_000_000, e.getMessage());
+        }
+    }
+
+    private int warmTokensAndJson(long deadline) throws Exception {
+        LoanResponse loan = LoanResponse.builder()
+                .id(1L)
+                .amount(new BigDecimal("2500.00"))
+                .term(12)
+                .purpose("Warm-up")
+                .status("PENDING")
+                .userId(1L)
+                .userName("Warm-up")
+                .createdAt("2025-01-01 00:00:00")
+                .build();
+        String loanRequest = "{\"amount\":2500.00,\"term\":12,\"purpose\":\"Warm-up\"}";
+        String loginRequest = "{\"email\":\"" + SYNTHETIC_EMAIL + "\",\"password\":\"warm-up-password\"}";
+        int done = 0;
+        while (done < iterations && System.nanoTime() < deadline) {
+            String access = jwtService.generateToken(SYNTHETIC_EMAIL, 1L);
+            String refresh = jwtService.generateRefreshToken(SYNTHETIC_EMAIL, 1L);
+            jwtService.validateToken(access, jwtService.extractUsername(access));
+            jwtService.isRefreshToken(refresh);
+
+            AuthResponse auth = AuthResponse.builder()
+                    .accessToken(access)
+                    .refreshToken(refresh)
+                    .user(UserResponse.builder().id(1L).email(SYNTHETIC_EMAIL).name("Warm-up").role("CUSTOMER").build())
+                    .build();
+            objectMapper.writeValueAsString(auth);
+            objectMapper.writeValueAsString(List.of(loan, loan));
+            objectMapper.readValue(loanRequest, LoanApplicationRequest.class);
+            objectMapper.readValue(loginRequest, UserLoginRequest.class);
+            done++;
+        }
+        return done;
+    }
+
+    private int warmQueries(long deadline) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        int done = 0;
+        while (done < queryIterations && System.nanoTime() < deadline) {
+            readOnly.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                userRepository.findByEmail(SYNTHETIC_EMAIL);
+                userRepository.findActiveIds(List.of(-1L));
+                loanRepository.findWithUsersById(-1L);
+                loanRepository.findAllWithUsersByIdIn(List.of(-1L));
+                loanRepository.findAll(PageRequest.of(0, 10, Sort.by("createdAt").descending()));
+            });
+            done++;
+        }
+        return done;
+    }
+
+    // Goes through the real connector, security filter chain, MVC dispatch and exception handler
+    private int warmHttp(long deadline) throws Exception {
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (port == null || httpIterations <= 0) {
+            return 0;
+        }
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        HttpRequest login = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/users/login"))
+                .header("Content-Type", "application/json")
+                .header(WarmupRequests.HEADER, warmupRequests.token())
+                .POST(HttpRequest.BodyPublishers.ofString(INVALID_LOGIN))
+                .build();
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health/liveness"))
+                .header(WarmupRequests.HEADER, warmupRequests.token())
+                .GET()
+                .build();
+        int done = 0;
+        while (done < httpIterations && System.nanoTime() < deadline) {
+            client.send(login, HttpResponse.BodyHandlers.discarding());
+            client.send(health, HttpResponse.BodyHandlers.discarding());
+            done += 2;
+        }
+        return done;
+    }
+}
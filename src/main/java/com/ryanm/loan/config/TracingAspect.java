@@ -0,0 +1,75 @@
+package com.ryanm.loan.config;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spans around the application layers that metrics cannot tell apart: every public LoanService and
+ * UserService method, every repository call, and the JWT and bcrypt work done per request. Registered
+ * ahead of the transaction advice, so a service span also covers the commit and its Hibernate flush.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class TracingAspect {
+    private static final String REPOSITORY_PACKAGE = "com.ryanm.loan.repository";
+
+    private final Tracer tracer;
+    // Repository proxy class -> repository interface name
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    @Around("execution(public * com.ryanm.loan.service.LoanService.*(..))"
+            + " || execution(public * com.ryanm.loan.service.UserService.*(..))"
+            + " || execution(public * com.ryanm.loan.service.JwtService.*(..))")
+    public Object traceService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace(joinPoint, joinPoint.getSignature().getDeclaringType().getSimpleName());
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object traceRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace(joinPoint, repositoryNames.computeIfAbsent(joinPoint.getThis().getClass(),
+                type -> repositoryName(joinPoint.getThis())));
+    }
+
+    @Around("execution(* org.springframework.security.crypto.password.PasswordEncoder+.*(..))")
+    public Object tracePasswordEncoder(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace(joinPoint, "bcrypt");
+    }
+
+    private Object trace(ProceedingJoinPoint joinPoint, String component) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        Span span = tracer.nextSpan()
+                .name(component + "." + method)
+                .tag("code.namespace", component)
+                .tag("code.function", method)
+                .start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    // Inherited methods such as findById are declared on Spring Data interfaces; name the span after ours
+    private static String repositoryName(Object repository) {
+        for (Class<?> type : AopProxyUtils.proxiedUserInterfaces(repository)) {
+            if (type.getPackageName().equals(REPOSITORY_PACKAGE)) {
+                return type.getSimpleName();
+            }
+        }
+        return "Repository";
+    }
+}
@@ -0,0 +1,37 @@
+package com.ryanm.loan.config;
+
+import io.micrometer.tracing.Tracer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// Application spans on top of what Spring Boot traces itself (HTTP server requests and the security filter chain).
+// Follows management.tracing.enabled, which is off unless the tracing profile is active.
+// Spring Boot also switches it off in tests.
+@Configuration
+@ConditionalOnProperty(name = "management.tracing.enabled", havingValue = "true")
+public class TracingConfig {
+
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor(ObjectProvider<Tracer> tracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource)) {
+                    return bean;
+                }
+                return ProxyDataSources.withListeners(bean, beanName,
+                        new TracingQueryListener(() -> tracer.getIfAvailable(() -> Tracer.NOOP)), null);
+            }
+        };
+    }
+
+    @Bean
+    public TracingAspect tracingAspect(Tracer tracer) {
+        return new TracingAspect(tracer);
+    }
+}
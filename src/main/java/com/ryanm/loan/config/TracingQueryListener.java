@@ -0,0 +1,85 @@
+package com.ryanm.loan.config;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// One span per JDBC execution (a batch counts as one), child of whatever span is current on the calling thread.
+// One listener per data source: db.system comes from that database's own metadata.
+class TracingQueryListener implements QueryExecutionListener {
+    private static final String SPAN_KEY = TracingQueryListener.class.getName();
+    private static final int MAX_STATEMENT_LENGTH = 1000;
+    // JDBC product names whose OpenTelemetry db.system value is not simply the lower-cased name
+    private static final Map<String, String> DB_SYSTEMS = Map.of(
+            "microsoft sql server", "mssql",
+            "hsql database engine", "hsqldb",
+            "apache derby", "derby");
+
+    // Resolved on first use: the listener is created with the data source, before the tracer exists
+    private final Supplier<Tracer> tracerSupplier;
+    private volatile Tracer tracer;
+    // Resolved from the first statement's connection
+    private volatile String dbSystem;
+
+    TracingQueryListener(Supplier<Tracer> tracerSupplier) {
+        this.tracerSupplier = tracerSupplier;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        String sql = queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery();
+        Span span = tracer().nextSpan()
+                .name("jdbc " + execInfo.getStatementType().name().toLowerCase())
+                .tag("db.system", dbSystem(execInfo))
+                .tag("db.statement", sql.length() > MAX_STATEMENT_LENGTH ? sql.substring(0, MAX_STATEMENT_LENGTH) : sql)
+                .start();
+        if (execInfo.isBatch()) {
+            span.tag("db.batch.size", String.valueOf(execInfo.getBatchSize()));
+        }
+        execInfo.addCustomValue(SPAN_KEY, span);
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Span span = execInfo.getCustomValue(SPAN_KEY, Span.class);
+        if (span == null) {
+            return;
+        }
+        if (!execInfo.isSuccess() && execInfo.getThrowable() != null) {
+            span.error(execInfo.getThrowable());
+        }
+        span.end();
+    }
+
+    private String dbSystem(ExecutionInfo execInfo) {
+        String current = dbSystem;
+        if (current == null) {
+            try {
+                String product = execInfo.getStatement().getConnection().getMetaData().getDatabaseProductName()
+                        .toLowerCase(Locale.ROOT);
+                current = DB_SYSTEMS.getOrDefault(product, product.replace(' ', '_'));
+            } catch (SQLException | RuntimeException e) {
+                current = "other_sql";
+            }
+            dbSystem = current;
+        }
+        return current;
+    }
+
+    private Tracer tracer() {
+        Tracer current = tracer;
+        if (current == null) {
+            current = tracerSupplier.get();
+            tracer = current;
+        }
+        return current;
+    }
+}
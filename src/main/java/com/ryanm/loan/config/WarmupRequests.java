@@ -0,0 +1,53 @@
+package com.ryanm.loan.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationPredicate;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+
+/**
+ * Marks the synthetic requests {@link StartupWarmup} sends through the real HTTP stack, so error counters,
+ * concurrency limiters and request metrics can leave them out. The header carries a random value made at
+ * startup, so a client cannot use it to get past the limiter. As an {@link ObservationPredicate} it also keeps
+ * warm-up requests out of {@code http.server.requests} and tracing.
+ */
+@Component
+public class WarmupRequests implements ObservationPredicate {
+    public static final String HEADER = "X-Warmup-Token";
+
+    private final byte[] token;
+
+    public WarmupRequests() {
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        this.token = HexFormat.of().formatHex(random).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    String token() {
+        return new String(token, StandardCharsets.US_ASCII);
+    }
+
+    public boolean isWarmup(HttpServletRequest request) {
+        String value = request.getHeader(HEADER);
+        return value != null && MessageDigest.isEqual(token, value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Whether the request this thread is handling, if any, is a warm-up request
+    public boolean isCurrentRequestWarmup() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                && isWarmup(attributes.getRequest());
+    }
+
+    @Override
+    public boolean test(String name, Observation.Context context) {
+        return !(context instanceof ServerRequestObservationContext server && isWarmup(server.getCarrier()));
+    }
+}
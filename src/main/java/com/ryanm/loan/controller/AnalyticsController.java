@@ -0,0 +1,85 @@
+package com.ryanm.loan.controller;
+
+import com.ryanm.loan.dto.PortfolioGroupResponse;
+import com.ryanm.loan.dto.PortfolioQuery;
+import com.ryanm.loan.dto.RiskSimulationRequest;
+import com.ryanm.loan.dto.RiskSimulationResponse;
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.model.PortfolioGroupBy;
+import com.ryanm.loan.service.PortfolioSnapshot;
+import com.ryanm.loan.service.RiskSimulationService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/v1/analytics")
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsController {
+    private final PortfolioSnapshot portfolioSnapshot;
+    private final RiskSimulationService riskSimulationService;
+
+    // 1. Portfolio breakdown: filter, group and aggregate the loan book (manager, auditor)
+    @GetMapping("/portfolio")
+    @PreAuthorize("hasAnyRole('MANAGER', 'AUDITOR')")
+    public ResponseEntity<List<PortfolioGroupResponse>> getPortfolioBreakdown(
+            @RequestParam(defaultValue = "NONE") PortfolioGroupBy groupBy,
+            @RequestParam(required = false) Set<Loan.Status> status,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) Integer minTerm,
+            @RequestParam(required = false) Integer maxTerm,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) BigDecimal bucketSize) {
+        log.info("API: Portfolio breakdown by {}", groupBy);
+        PortfolioQuery query = PortfolioQuery.builder()
+                .groupBy(groupBy)
+                .statuses(status)
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .minTerm(minTerm)
+                .maxTerm(maxTerm)
+                .from(from)
+                .to(to)
+                .bucketSize(bucketSize)
+                .build();
+        return ResponseEntity.ok(portfolioSnapshot.query(query));
+    }
+
+    // 2. Start a Monte Carlo loss simulation over the accepted book (manager, auditor)
+    @PostMapping("/risk/simulations")
+    @PreAuthorize("hasAnyRole('MANAGER', 'AUDITOR')")
+    public ResponseEntity<RiskSimulationResponse> startSimulation(@Valid @RequestBody RiskSimulationRequest request) {
+        log.info("API: Start risk simulation ({} scenarios)", request.getScenarios());
+        RiskSimulationResponse response = riskSimulationService.start(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    // 3. Simulation progress and result (manager, auditor)
+    @GetMapping("/risk/simulations/{id}")
+    @PreAuthorize("hasAnyRole('MANAGER', 'AUDITOR')")
+    public ResponseEntity<RiskSimulationResponse> getSimulation(@PathVariable String id) {
+        log.info("API: Get risk simulation {}", id);
+        return ResponseEntity.ok(riskSimulationService.getJob(id));
+    }
+
+    // 4. Cancel a simulation that is still queued or running (manager, auditor)
+    @DeleteMapping("/risk/simulations/{id}")
+    @PreAuthorize("hasAnyRole('MANAGER', 'AUDITOR')")
+    public ResponseEntity<RiskSimulationResponse> cancelSimulation(@PathVariable String id) {
+        log.info("API: Cancel risk simulation {}", id);
+        return ResponseEntity.ok(riskSimulationService.cancel(id));
+    }
+}
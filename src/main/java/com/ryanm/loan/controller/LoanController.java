@@ -1,20 +1,30 @@
 package com.ryanm.loan.controller;
 
 import com.ryanm.loan.dto.LoanApplicationRequest;
+import com.ryanm.loan.dto.LoanChangesResponse;
+import com.ryanm.loan.dto.LoanEventResponse;
 import com.ryanm.loan.dto.LoanResponse;
 import com.ryanm.loan.dto.LoanReviewRequest;
 import com.ryanm.loan.dto.LoanUpdateRequest;
+import com.ryanm.loan.model.ReviewPriority;
+import com.ryanm.loan.service.LoanArchiveService;
+import com.ryanm.loan.service.LoanHistoryService;
 import com.ryanm.loan.service.LoanService;
+import com.ryanm.loan.service.LoanStreamService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -23,6 +33,9 @@ import java.util.List;
 @Slf4j
 public class LoanController {
     private final LoanService loanService;
+    private final LoanArchiveService loanArchiveService;
+    private final LoanHistoryService loanHistoryService;
+    private final LoanStreamService loanStreamService;
 
     // 1. Apply for a loan (customer)
     @PostMapping("/apply")
@@ -103,4 +116,97 @@ public class LoanController {
         List<LoanResponse> response = loanService.getMyLoans(userDetails.getUsername());
         return ResponseEntity.ok(response);
     }
-} 
\ No newline at end of file
+
+    // 9. List archived loans, optionally for one user (manager, auditor)
+    @GetMapping("/archive")
+    @PreAuthorize("hasAnyRole('MANAGER', 'AUDITOR')")
+    public ResponseEntity<Page<LoanResponse>> getArchivedLoans(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        log.info("API: Get archived loans (userId={})", userId);
+        Page<LoanResponse> response = loanArchiveService.getArchivedLoans(userId, page, size);
+        return ResponseEntity.ok(response);
+    }
+
+    // 10. Get a specific archived loan (manager, auditor)
+    @GetMapping("/archive/{id}")
+    @PreAuthorize("hasAnyRole('MANAGER', 'AUDITOR')")
+    public ResponseEntity<LoanResponse> getArchivedLoan(@PathVariable Long id) {
+        log.info("API: Get archived loan by id: {}", id);
+        LoanResponse response = loanArchiveService.getArchivedLoan(id);
+        return ResponseEntity.ok(response);
+    }
+
+    // 11. Loan history across all loans in a time range (auditor, manager)
+    @GetMapping("/history")
+    @PreAuthorize("hasAnyRole('AUDITOR', 'MANAGER')")
+    public ResponseEntity<Page<LoanEventResponse>> getHistory(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        log.info("API: Get loan history from {} to {}", from, to);
+        Page<LoanEventResponse> response = loanHistoryService.getHistory(from, to, page, size);
+        return ResponseEntity.ok(response);
+    }
+
+    // 12. History of a single loan (auditor, manager)
+    @GetMapping("/{id}/history")
+    @PreAuthorize("hasAnyRole('AUDITOR', 'MANAGER')")
+    public ResponseEntity<List<LoanEventResponse>> getLoanHistory(@PathVariable Long id) {
+        log.info("API: Get history of loan {}", id);
+        List<LoanEventResponse> response = loanHistoryService.getLoanHistory(id);
+        return ResponseEntity.ok(response);
+    }
+
+    // 13. Live stream of new and decided loans (manager)
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('MANAGER')")
+    public SseEmitter streamLoans(@AuthenticationPrincipal UserDetails userDetails,
+                                  @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        log.info("API: Loan stream subscription by manager: {} (lastEventId={})", userDetails.getUsername(), lastEventId);
+        return loanStreamService.subscribe(lastEventId);
+    }
+
+    // 14. Claim the next PENDING loans from the review queue (manager)
+    @PostMapping("/queue/claim")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<List<LoanResponse>> claimLoans(@AuthenticationPrincipal UserDetails userDetails,
+                                                         @RequestParam(defaultValue = "10") int count,
+                                                         @RequestParam(required = false) ReviewPriority priority) {
+        log.info("API: Claim {} loans by manager: {}", count, userDetails.getUsername());
+        List<LoanResponse> response = loanService.claimLoans(userDetails.getUsername(), count, priority);
+        return ResponseEntity.ok(response);
+    }
+
+    // 15. Release a claimed loan back to the queue (manager)
+    @PostMapping("/{id}/release")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<Void> releaseClaim(@AuthenticationPrincipal UserDetails userDetails,
+                                             @PathVariable Long id) {
+        log.info("API: Release claim on loan {} by manager: {}", id, userDetails.getUsername());
+        loanService.releaseClaim(id, userDetails.getUsername());
+        return ResponseEntity.noContent().build();
+    }
+
+    // 16. Get several loans in one request, e.g. GET /api/v1/loans?ids=1,2,3 (unknown ids are omitted; customers
+    // only get their own loans, managers and auditors any)
+    @GetMapping(value = "", params = "ids")
+    public ResponseEntity<List<LoanResponse>> getLoansByIds(@AuthenticationPrincipal UserDetails userDetails,
+                                                            @RequestParam List<Long> ids) {
+        log.info("API: Get {} loans by id for user: {}", ids.size(), userDetails.getUsername());
+        List<LoanResponse> response = loanService.getLoansByIds(ids, userDetails);
+        return ResponseEntity.ok(response);
+    }
+
+    // 17. Loans changed or removed since a cursor, for clients that mirror the loan book (manager, auditor)
+    @GetMapping("/changes")
+    @PreAuthorize("hasAnyRole('MANAGER', 'AUDITOR')")
+    public ResponseEntity<LoanChangesResponse> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                          @RequestParam(defaultValue = "500") int limit) {
+        log.info("API: Get loan changes since {}", since);
+        LoanChangesResponse response = loanService.getChanges(since, limit);
+        return ResponseEntity.ok(response);
+    }
+}
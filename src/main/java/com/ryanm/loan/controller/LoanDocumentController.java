@@ -0,0 +1,92 @@
+package com.ryanm.loan.controller;
+
+import com.ryanm.loan.dto.LoanDocumentResponse;
+import com.ryanm.loan.dto.LoanDocumentUploadRequest;
+import com.ryanm.loan.service.LoanDocumentService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/loans/{loanId}/documents")
+@RequiredArgsConstructor
+@Slf4j
+public class LoanDocumentController {
+    private final LoanDocumentService loanDocumentService;
+
+    // 1. Start a chunked document upload (customer, own pending loan)
+    @PostMapping("")
+    public ResponseEntity<LoanDocumentResponse> startUpload(@AuthenticationPrincipal UserDetails userDetails,
+                                                            @PathVariable Long loanId,
+                                                            @Valid @RequestBody LoanDocumentUploadRequest request) {
+        log.info("API: Start document upload for loan {} by user: {}", loanId, userDetails.getUsername());
+        LoanDocumentResponse response = loanDocumentService.startUpload(loanId, userDetails.getUsername(), request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    // 2. Upload one chunk as the raw request body (any order, repeatable; X-Chunk-SHA256 required)
+    @PutMapping(value = "/{documentId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<LoanDocumentResponse> uploadChunk(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long loanId,
+            @PathVariable Long documentId,
+            @PathVariable int index,
+            @RequestHeader(value = LoanDocumentService.CHUNK_CHECKSUM_HEADER, required = false) String checksum,
+            HttpServletRequest request) throws IOException {
+        log.debug("API: Upload chunk {} of document {} for loan {}", index, documentId, loanId);
+        LoanDocumentResponse response = loanDocumentService.uploadChunk(loanId, documentId, index,
+                userDetails.getUsername(), checksum, request.getInputStream());
+        return ResponseEntity.ok(response);
+    }
+
+    // 3. Upload status, including the chunks already received (to resume after a disconnect)
+    @GetMapping("/{documentId}")
+    public ResponseEntity<LoanDocumentResponse> getDocument(@AuthenticationPrincipal UserDetails userDetails,
+                                                            @PathVariable Long loanId,
+                                                            @PathVariable Long documentId) {
+        log.info("API: Get document {} of loan {}", documentId, loanId);
+        LoanDocumentResponse response = loanDocumentService.getDocument(loanId, documentId, userDetails.getUsername());
+        return ResponseEntity.ok(response);
+    }
+
+    // 4. List a loan's documents (owner, manager, auditor)
+    @GetMapping("")
+    public ResponseEntity<List<LoanDocumentResponse>> getDocuments(@AuthenticationPrincipal UserDetails userDetails,
+                                                                   @PathVariable Long loanId) {
+        log.info("API: List documents of loan {}", loanId);
+        List<LoanDocumentResponse> response = loanDocumentService.getDocuments(loanId, userDetails.getUsername());
+        return ResponseEntity.ok(response);
+    }
+
+    // 5. Download a completed document (zero-copy; supports ETag and byte ranges)
+    @GetMapping("/{documentId}" + LoanDocumentService.CONTENT_PATH_SUFFIX)
+    public void download(@AuthenticationPrincipal UserDetails userDetails,
+                         @PathVariable Long loanId,
+                         @PathVariable Long documentId,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        log.info("API: Download document {} of loan {}", documentId, loanId);
+        loanDocumentService.download(loanId, documentId, userDetails.getUsername(), request, response);
+    }
+
+    // 6. Remove a document (uploader, while the loan is pending)
+    @DeleteMapping("/{documentId}")
+    public ResponseEntity<Void> deleteDocument(@AuthenticationPrincipal UserDetails userDetails,
+                                               @PathVariable Long loanId,
+                                               @PathVariable Long documentId) {
+        log.info("API: Delete document {} of loan {} by user: {}", documentId, loanId, userDetails.getUsername());
+        loanDocumentService.deleteDocument(loanId, documentId, userDetails.getUsername());
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,27 +1,38 @@
 package com.ryanm.loan.controller;
 
 import com.ryanm.loan.dto.AuthResponse;
+import com.ryanm.loan.dto.BulkUserRegistrationRequest;
+import com.ryanm.loan.dto.BulkUserRegistrationResponse;
 import com.ryanm.loan.dto.ChangePasswordRequest;
 import com.ryanm.loan.dto.RefreshTokenRequest;
 import com.ryanm.loan.dto.UserLoginRequest;
 import com.ryanm.loan.dto.UserRegistrationRequest;
 import com.ryanm.loan.dto.UserResponse;
+import com.ryanm.loan.service.ProfileImageService;
+import com.ryanm.loan.service.UserOnboardingService;
 import com.ryanm.loan.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/v1/users")
 @RequiredArgsConstructor
 @Slf4j
 public class UserController {
     private final UserService userService;
+    private final ProfileImageService profileImageService;
+    private final UserOnboardingService userOnboardingService;
 
     // 1. Register (Sign Up)
     @PostMapping("/signup")
@@ -88,4 +99,24 @@ public class UserController {
         AuthResponse response = userService.refreshToken(request.getRefreshToken());
         return ResponseEntity.ok(response);
     }
-} 
\ No newline at end of file
+
+    // 9. Serve Profile Image (public, cacheable; optional thumbnail size)
+    @GetMapping("/images/{filename:.+}")
+    public void getProfileImage(@PathVariable String filename,
+                                @RequestParam(required = false) Integer size,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        log.debug("API: Get profile image {} (size={})", filename, size);
+        profileImageService.serve(filename, size, request, response);
+    }
+
+    // 10. Bulk Register (manager; no tokens issued, one result per row)
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<BulkUserRegistrationResponse> registerBulk(
+            @Valid @RequestBody BulkUserRegistrationRequest request) {
+        log.info("API: Bulk register {} users", request.getUsers().size());
+        BulkUserRegistrationResponse response = userOnboardingService.registerAll(request.getUsers());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,13 @@
+package com.ryanm.loan.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+// Rows are validated one by one in the service so a bad row is reported instead of failing the whole file
+@Data
+public class BulkUserRegistrationRequest {
+    @NotEmpty(message = "At least one user is required")
+    private List<UserRegistrationRequest> users;
+}
@@ -0,0 +1,14 @@
+package com.ryanm.loan.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BulkUserRegistrationResponse {
+    private int created;
+    private int failed;
+    private List<BulkUserResult> results;
+}
@@ -0,0 +1,15 @@
+package com.ryanm.loan.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkUserResult {
+    private int row;
+    private String email;
+    private String status;
+    private String error;
+}
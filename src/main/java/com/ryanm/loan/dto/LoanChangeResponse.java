@@ -0,0 +1,16 @@
+package com.ryanm.loan.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class LoanChangeResponse {
+    private long seq;
+    // CHANGED (loan holds the current state) or REMOVED (tombstone; loan is null)
+    private String type;
+    private Long loanId;
+    // DELETED or ARCHIVED, for removals only
+    private String reason;
+    private LoanResponse loan;
+}
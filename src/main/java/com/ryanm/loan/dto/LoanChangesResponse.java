@@ -0,0 +1,16 @@
+package com.ryanm.loan.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class LoanChangesResponse {
+    private List<LoanChangeResponse> changes;
+    // Pass as since on the next poll; unchanged when there was nothing new
+    private long nextCursor;
+    // More changes are already available; poll again right away
+    private boolean hasMore;
+}
@@ -0,0 +1,25 @@
+package com.ryanm.loan.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class LoanDocumentResponse {
+    private Long id;
+    private Long loanId;
+    private String filename;
+    private String contentType;
+    private long size;
+    private int chunkSize;
+    private int totalChunks;
+    // Indexes already stored; a client resuming after a disconnect sends only the others
+    private List<Integer> receivedChunks;
+    private String status;
+    private String sha256;
+    private String downloadUrl;
+    private String createdAt;
+    private String completedAt;
+}
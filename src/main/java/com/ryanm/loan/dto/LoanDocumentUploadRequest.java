@@ -0,0 +1,24 @@
+package com.ryanm.loan.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+@Data
+public class LoanDocumentUploadRequest {
+    @NotBlank(message = "Filename is required")
+    private String filename;
+
+    @NotBlank(message = "Content type is required")
+    private String contentType;
+
+    @NotNull(message = "Size is required")
+    @Min(value = 1, message = "Document cannot be empty")
+    private Long size;
+
+    // Optional hex SHA-256 of the whole file, checked once every chunk has arrived
+    @Pattern(regexp = "[0-9a-fA-F]{64}", message = "SHA-256 must be 64 hex characters")
+    private String sha256;
+}
@@ -0,0 +1,23 @@
+package com.ryanm.loan.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+public class LoanEventResponse {
+    private Long id;
+    private Long loanId;
+    private String type;
+    private String actor;
+    private Long userId;
+    private BigDecimal amount;
+    private Integer term;
+    private String purpose;
+    private String status;
+    private Long reviewedById;
+    private String reviewComment;
+    private String occurredAt;
+}
@@ -0,0 +1,21 @@
+package com.ryanm.loan.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PortfolioGroupResponse {
+    private String key;
+    private long count;
+    private BigDecimal totalAmount;
+    private BigDecimal averageAmount;
+    private Map<String, Long> countByStatus;
+    // Accepted share of decided loans; null while nothing in the group has been decided
+    private Double approvalRate;
+}
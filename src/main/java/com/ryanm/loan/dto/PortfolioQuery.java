@@ -0,0 +1,25 @@
+package com.ryanm.loan.dto;
+
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.model.PortfolioGroupBy;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+
+// Filter and grouping for a portfolio breakdown; null bounds are open
+@Data
+@Builder
+public class PortfolioQuery {
+    private PortfolioGroupBy groupBy;
+    private Set<Loan.Status> statuses;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private Integer minTerm;
+    private Integer maxTerm;
+    private LocalDate from;
+    private LocalDate to;
+    private BigDecimal bucketSize;
+}
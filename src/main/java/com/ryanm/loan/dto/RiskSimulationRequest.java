@@ -0,0 +1,13 @@
+package com.ryanm.loan.dto;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+@Data
+public class RiskSimulationRequest {
+    @Min(value = 100, message = "At least 100 scenarios are required")
+    private Integer scenarios;
+
+    // Fixed seed makes a run reproducible; omitted means the configured default
+    private Long seed;
+}
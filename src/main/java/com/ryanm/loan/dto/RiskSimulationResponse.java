@@ -0,0 +1,29 @@
+package com.ryanm.loan.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder(toBuilder = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RiskSimulationResponse {
+    private String id;
+    private String status;
+    private long portfolioVersion;
+    private int scenarios;
+    private long completedScenarios;
+    private double progress;
+    private Integer loans;
+    private BigDecimal totalExposure;
+    private BigDecimal expectedLoss;
+    private BigDecimal lossStandardDeviation;
+    private BigDecimal valueAtRisk95;
+    private BigDecimal valueAtRisk99;
+    private BigDecimal expectedShortfall99;
+    private Integer parallelism;
+    private Long elapsedMs;
+    private String error;
+}
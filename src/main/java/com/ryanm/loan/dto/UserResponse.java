@@ -10,6 +10,7 @@ public class UserResponse {
     private String name;
     private String email;
     private String image;
+    private String imageUrl;
     private String phone;
     private String role;
     private String createdAt;
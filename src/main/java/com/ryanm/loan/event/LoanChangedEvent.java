@@ -0,0 +1,39 @@
+package com.ryanm.loan.event;
+
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.model.LoanEvent;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Published by LoanService for every loan mutation; listeners act on it after the transaction commits
+public record LoanChangedEvent(
+        LoanEvent.Type type,
+        Long loanId,
+        Long userId,
+        String actor,
+        BigDecimal amount,
+        Integer term,
+        String purpose,
+        Loan.Status status,
+        Long reviewedById,
+        String reviewComment,
+        LocalDateTime createdAt,
+        LocalDateTime occurredAt) {
+
+    public static LoanChangedEvent of(LoanEvent.Type type, Loan loan, String actor) {
+        return new LoanChangedEvent(
+                type,
+                loan.getId(),
+                loan.getUser().getId(),
+                actor,
+                loan.getAmount(),
+                loan.getTerm(),
+                loan.getPurpose(),
+                loan.getStatus(),
+                loan.getReviewedBy() != null ? loan.getReviewedBy().getId() : null,
+                loan.getReviewComment(),
+                loan.getCreatedAt(),
+                LocalDateTime.now());
+    }
+}
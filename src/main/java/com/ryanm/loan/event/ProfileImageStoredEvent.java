@@ -0,0 +1,7 @@
+package com.ryanm.loan.event;
+
+import java.nio.file.Path;
+
+// Published once a profile image has been written to the store and attached to a user
+public record ProfileImageStoredEvent(String filename, Path path) {
+}
@@ -3,20 +3,26 @@ package com.ryanm.loan.exception;
 import lombok.Getter;
 import org.springframework.http.HttpStatus;
 
+/**
+ * Base of the domain exceptions. These describe expected outcomes (bad input, missing records, failed logins)
+ * and are always answered by {@link GlobalExceptionHandler}, so by default they skip the stack trace capture
+ * that makes throwing expensive. Start the JVM with {@code -Dloan.exceptions.stack-traces=true} to get traces
+ * back while debugging. A wrapped cause keeps its own trace either way.
+ */
 @Getter
 public class BaseException extends RuntimeException {
+    private static final boolean STACK_TRACES = Boolean.getBoolean("loan.exceptions.stack-traces");
+
     private final String code;
     private final HttpStatus status;
 
     public BaseException(String message, String code, HttpStatus status) {
-        super(message);
-        this.code = code;
-        this.status = status;
+        this(message, code, status, null);
     }
 
     public BaseException(String message, String code, HttpStatus status, Throwable cause) {
-        super(message, cause);
+        super(message, cause, true, STACK_TRACES);
         this.code = code;
         this.status = status;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,110 @@
+package com.ryanm.loan.exception;
+
+import com.ryanm.loan.config.WarmupRequests;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logging for expected (4xx) errors. Every occurrence is counted in {@code api.errors} tagged by code and
+ * status. Only the first few per code in each window are written to the log, as one line without a stack
+ * trace; the rest are reported as a single "suppressed" count, so a burst of failed logins or bad ids
+ * costs a counter increment per request instead of a log write. Errors of startup warm-up requests are neither
+ * counted nor logged.
+ */
+@Slf4j
+@Component
+public class ErrorLogLimiter {
+    private final MeterRegistry meterRegistry;
+    private final WarmupRequests warmupRequests;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Value("${error-log.window-ms:10000}")
+    private long windowMs;
+
+    @Value("${error-log.max-per-window:5}")
+    private int maxPerWindow;
+
+    public ErrorLogLimiter(MeterRegistry meterRegistry, WarmupRequests warmupRequests) {
+        this.meterRegistry = meterRegistry;
+        this.warmupRequests = warmupRequests;
+    }
+
+    public void record(String code, HttpStatus status, String message) {
+        if (warmupRequests.isCurrentRequestWarmup()) {
+            return;
+        }
+        count(code, status);
+        long suppressed = windows.computeIfAbsent(code, key -> new Window())
+                .admit(System.currentTimeMillis(), windowMs, maxPerWindow);
+        if (suppressed == 0) {
+            log.warn("{} {}: {}", status.value(), code, message);
+        } else if (suppressed > 0) {
+            log.warn("{} {}: {} ({} more suppressed in the previous window)", status.value(), code, message, suppressed);
+        }
+    }
+
+    // Counts without logging, for errors the caller logs itself (5xx with their traces)
+    public void count(String code, HttpStatus status) {
+        if (warmupRequests.isCurrentRequestWarmup()) {
+            return;
+        }
+        counters.computeIfAbsent(code + ':' + status.value(), key -> Counter.builder("api.errors")
+                        .tag("code", code)
+                        .tag("status", Integer.toString(status.value()))
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    // Reports codes that went quiet while some of their occurrences were still unlogged
+    @Scheduled(fixedDelayString = "${error-log.window-ms:10000}")
+    public void flushSuppressed() {
+        long now = System.currentTimeMillis();
+        windows.forEach((code, window) -> {
+            long suppressed = window.drainIfExpired(now, windowMs);
+            if (suppressed > 0) {
+                log.warn("{}: {} more occurrences suppressed in the last window", code, suppressed);
+            }
+        });
+    }
+
+    private static final class Window {
+        private long start;
+        private int logged;
+        private long suppressed;
+
+        // -1 when this occurrence should not be logged, otherwise how many the previous window suppressed
+        synchronized long admit(long now, long windowMs, int maxPerWindow) {
+            long carried = 0;
+            if (now - start >= windowMs) {
+                carried = suppressed;
+                start = now;
+                logged = 0;
+                suppressed = 0;
+            }
+            if (logged < maxPerWindow) {
+                logged++;
+                return carried;
+            }
+            suppressed++;
+            return -1;
+        }
+
+        synchronized long drainIfExpired(long now, long windowMs) {
+            if (suppressed == 0 || now - start < windowMs) {
+                return 0;
+            }
+            long drained = suppressed;
+            suppressed = 0;
+            return drained;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.ryanm.loan.exception;
 
 import jakarta.validation.ConstraintViolationException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
@@ -20,19 +22,27 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
+// Expected 4xx outcomes go through ErrorLogLimiter (counted, rate-limited, no trace); only 5xx log full traces
 @Slf4j
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
+    private final ErrorLogLimiter errorLog;
 
     @ExceptionHandler(BaseException.class)
     public ResponseEntity<ErrorResponse> handleBaseException(BaseException ex) {
-        log.error("Base exception occurred: {}", ex.getMessage(), ex);
+        if (ex.getStatus().is5xxServerError()) {
+            log.error("Base exception occurred: {}", ex.getMessage(), ex);
+            errorLog.count(ex.getCode(), ex.getStatus());
+        } else {
+            errorLog.record(ex.getCode(), ex.getStatus(), ex.getMessage());
+        }
         return buildErrorResponse(ex.getMessage(), ex.getCode(), ex.getStatus());
     }
 
     @ExceptionHandler(ValidationException.class)
     public ResponseEntity<ErrorResponse> handleValidationException(ValidationException ex) {
-        log.error("Validation exception: {}", ex.getMessage(), ex);
+        errorLog.record("VALIDATION_ERROR", HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
         return buildErrorResponse(
             ex.getMessage(),
             "VALIDATION_ERROR",
@@ -43,7 +53,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(AuthenticationException.class)
     public ResponseEntity<ErrorResponse> handleAuthenticationException(AuthenticationException ex) {
-        log.error("Authentication exception: {}", ex.getMessage(), ex);
+        errorLog.record("AUTHENTICATION_ERROR", HttpStatus.UNAUTHORIZED, ex.getMessage());
         return buildErrorResponse(
             ex.getMessage(),
             "AUTHENTICATION_ERROR",
@@ -53,7 +63,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleResourceNotFoundException(ResourceNotFoundException ex) {
-        log.error("Resource not found: {}", ex.getMessage(), ex);
+        errorLog.record("RESOURCE_NOT_FOUND", HttpStatus.NOT_FOUND, ex.getMessage());
         return buildErrorResponse(
             ex.getMessage(),
             "RESOURCE_NOT_FOUND",
@@ -63,8 +73,6 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<ErrorResponse> handleHttpMessageNotReadable(HttpMessageNotReadableException ex) {
-        log.error("HTTP message not readable: {}", ex.getMessage(), ex);
-        
         String message = "Request body is required";
         String code = "MISSING_REQUEST_BODY";
         
@@ -80,7 +88,8 @@ public class GlobalExceptionHandler {
                 code = "MALFORMED_JSON";
             }
         }
-        
+
+        errorLog.record(code, HttpStatus.BAD_REQUEST, ex.getMessage());
         return buildErrorResponse(message, code, HttpStatus.BAD_REQUEST);
     }
 
@@ -93,7 +102,7 @@ public class GlobalExceptionHandler {
             errors.put(fieldName, errorMessage);
         });
         
-        log.error("Validation error occurred: {}", errors);
+        errorLog.record("VALIDATION_ERROR", HttpStatus.UNPROCESSABLE_ENTITY, "Validation failed: " + errors);
         return buildErrorResponse(
             "Validation failed",
             "VALIDATION_ERROR",
@@ -104,29 +113,29 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(MissingServletRequestParameterException.class)
     public ResponseEntity<ErrorResponse> handleMissingParams(MissingServletRequestParameterException ex) {
-        log.error("Missing request parameter: {}", ex.getMessage(), ex);
         String message = String.format("Required parameter '%s' is missing", ex.getParameterName());
+        errorLog.record("MISSING_PARAMETER", HttpStatus.BAD_REQUEST, message);
         return buildErrorResponse(message, "MISSING_PARAMETER", HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(MissingPathVariableException.class)
     public ResponseEntity<ErrorResponse> handleMissingPathVariable(MissingPathVariableException ex) {
-        log.error("Missing path variable: {}", ex.getMessage(), ex);
         String message = String.format("Required path variable '%s' is missing", ex.getVariableName());
+        errorLog.record("MISSING_PATH_VARIABLE", HttpStatus.BAD_REQUEST, message);
         return buildErrorResponse(message, "MISSING_PATH_VARIABLE", HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     public ResponseEntity<ErrorResponse> handleTypeMismatch(MethodArgumentTypeMismatchException ex) {
-        log.error("Type mismatch: {}", ex.getMessage(), ex);
         String message = String.format("Invalid value '%s' for parameter '%s'. Expected type: %s", 
             ex.getValue(), ex.getName(), ex.getRequiredType().getSimpleName());
+        errorLog.record("TYPE_MISMATCH", HttpStatus.BAD_REQUEST, message);
         return buildErrorResponse(message, "TYPE_MISMATCH", HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
     public ResponseEntity<ErrorResponse> handleMethodNotSupported(HttpRequestMethodNotSupportedException ex) {
-        log.error("Method not supported: {}", ex.getMessage(), ex);
+        errorLog.record("METHOD_NOT_SUPPORTED", HttpStatus.METHOD_NOT_ALLOWED, ex.getMessage());
         String message = String.format("HTTP method '%s' is not supported for this endpoint. Supported methods: %s", 
             ex.getMethod(), ex.getSupportedHttpMethods());
         return buildErrorResponse(message, "METHOD_NOT_SUPPORTED", HttpStatus.METHOD_NOT_ALLOWED);
@@ -134,15 +143,15 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(NoHandlerFoundException.class)
     public ResponseEntity<ErrorResponse> handleNoHandlerFound(NoHandlerFoundException ex) {
-        log.error("No handler found: {}", ex.getMessage(), ex);
         String message = String.format("Endpoint '%s %s' not found", ex.getHttpMethod(), ex.getRequestURL());
+        errorLog.record("ENDPOINT_NOT_FOUND", HttpStatus.NOT_FOUND, message);
         return buildErrorResponse(message, "ENDPOINT_NOT_FOUND", HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<ErrorResponse> handleConstraintViolation(ConstraintViolationException ex) {
-        log.error("Constraint violation occurred: {}", ex.getMessage(), ex);
-        
+        errorLog.record("VALIDATION_ERROR", HttpStatus.BAD_REQUEST, ex.getMessage());
+
         Map<String, String> errors = new HashMap<>();
         ex.getConstraintViolations().forEach(violation -> {
             String fieldName = violation.getPropertyPath().toString();
@@ -160,7 +169,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(AccessDeniedException.class)
     public ResponseEntity<ErrorResponse> handleAccessDenied(AccessDeniedException ex) {
-        log.error("Access denied: {}", ex.getMessage(), ex);
+        errorLog.record("ACCESS_DENIED", HttpStatus.FORBIDDEN, ex.getMessage());
         return buildErrorResponse(
             "Access denied. You don't have permission to access this resource",
             "ACCESS_DENIED",
@@ -170,7 +179,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(BusinessException.class)
     public ResponseEntity<ErrorResponse> handleBusinessException(BusinessException ex) {
-        log.error("Business rule conflict: {}", ex.getMessage(), ex);
+        errorLog.record(ex.getCode(), ex.getStatus(), ex.getMessage());
         return buildErrorResponse(
             ex.getMessage(),
             ex.getCode(),
@@ -179,9 +188,20 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLock(ObjectOptimisticLockingFailureException ex) {
+        errorLog.record("CONCURRENT_MODIFICATION", HttpStatus.CONFLICT, ex.getMessage());
+        return buildErrorResponse(
+            "The resource was changed by another request. Reload it and try again",
+            "CONCURRENT_MODIFICATION",
+            HttpStatus.CONFLICT
+        );
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleAllUncaughtException(Exception ex) {
         log.error("Unexpected error occurred: {}", ex.getMessage(), ex);
+        errorLog.count("INTERNAL_SERVER_ERROR", HttpStatus.INTERNAL_SERVER_ERROR);
         return buildErrorResponse(
             "An unexpected error occurred. Please try again later",
             "INTERNAL_SERVER_ERROR",
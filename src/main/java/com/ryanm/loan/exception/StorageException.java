@@ -0,0 +1,10 @@
+package com.ryanm.loan.exception;
+
+import org.springframework.http.HttpStatus;
+
+// The server could not read or write its own files; the request itself was fine and may be retried
+public class StorageException extends BaseException {
+    public StorageException(String message, Throwable cause) {
+        super(message, "STORAGE_ERROR", HttpStatus.SERVICE_UNAVAILABLE, cause);
+    }
+}
@@ -0,0 +1,58 @@
+package com.ryanm.loan.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Finalized loan moved out of the hot loans table; user and reviewer names are kept as a snapshot
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "archived_loans", indexes = {
+        @Index(name = "idx_archived_loans_user_id", columnList = "user_id")
+})
+public class ArchivedLoan {
+    // Same id the loan had in the loans table
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private Integer term; // in months
+
+    @Column(nullable = false)
+    private String purpose;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Loan.Status status;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    private String userName;
+
+    @Column(name = "reviewed_by_id")
+    private Long reviewedById;
+
+    private String reviewedByName;
+
+    private String reviewComment;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
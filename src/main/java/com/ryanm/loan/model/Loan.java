@@ -14,7 +14,11 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "loans")
+@Table(name = "loans", indexes = {
+        @Index(name = "idx_loans_status_created_at", columnList = "status, created_at"),
+        @Index(name = "idx_loans_status_amount", columnList = "status, amount"),
+        @Index(name = "idx_loans_change_seq", columnList = "change_seq", unique = true)
+})
 public class Loan {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -43,14 +47,34 @@ public class Loan {
 
     private String reviewComment;
 
+    // Review queue lease: the manager working this loan until claimExpiresAt
+    @Column(name = "claimed_by_id")
+    private Long claimedById;
+
+    private LocalDateTime claimExpiresAt;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
 
+    // Guards reviews against the expiry job (and each other) overwriting a concurrent status change
+    @Version
+    private Long version;
+
+    // Position in the change feed: assigned by the database on insert and bumped by every later write
+    // (LoanRepository.markChanged and the bulk updates), never by a plain entity update
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    private Long changeSeq;
+
+    // When changeSeq was last assigned; the feed holds back changes stamped after a still-running write began
+    @Column(name = "changed_at", nullable = false, updatable = false)
+    private LocalDateTime changedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        changedAt = createdAt;
     }
 
     @PreUpdate
@@ -61,6 +85,7 @@ public class Loan {
     public enum Status {
         PENDING,
         ACCEPTED,
-        REJECTED
+        REJECTED,
+        EXPIRED   // left PENDING past loan.expiry.pending-max-age-days
     }
 } 
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.ryanm.loan.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "loan_documents", indexes = {
+        @Index(name = "idx_loan_documents_loan_id", columnList = "loan_id"),
+        @Index(name = "idx_loan_documents_status_created_at", columnList = "status, created_at")
+})
+public class LoanDocument {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Plain id rather than an association: documents outlive the loan row when it is archived
+    @Column(name = "loan_id", nullable = false)
+    private Long loanId;
+
+    @Column(name = "uploaded_by_id", nullable = false)
+    private Long uploadedById;
+
+    @Column(nullable = false)
+    private String filename;
+
+    @Column(nullable = false, length = 100)
+    private String contentType;
+
+    @Column(nullable = false)
+    private Long sizeBytes;
+
+    @Column(nullable = false)
+    private Integer chunkSize;
+
+    @Column(nullable = false)
+    private Integer totalChunks;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    // Declared by the client when the upload starts (optional), replaced by the computed hash on completion
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public enum Status {
+        UPLOADING,
+        COMPLETE
+    }
+}
@@ -0,0 +1,63 @@
+package com.ryanm.loan.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Append-only audit record of one loan change, with the loan's state right after it
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "loan_events", indexes = {
+        @Index(name = "idx_loan_events_loan_id_occurred_at", columnList = "loan_id, occurred_at"),
+        @Index(name = "idx_loan_events_occurred_at", columnList = "occurred_at")
+})
+public class LoanEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "loan_id", nullable = false)
+    private Long loanId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type type;
+
+    @Column(nullable = false)
+    private String actor;
+
+    private Long userId;
+
+    private BigDecimal amount;
+
+    private Integer term;
+
+    private String purpose;
+
+    @Enumerated(EnumType.STRING)
+    private Loan.Status status;
+
+    private Long reviewedById;
+
+    private String reviewComment;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    public enum Type {
+        APPLIED,
+        UPDATED,
+        APPROVED,
+        REJECTED,
+        DELETED,
+        EXPIRED
+    }
+}
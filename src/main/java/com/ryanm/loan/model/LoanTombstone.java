@@ -0,0 +1,41 @@
+package com.ryanm.loan.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Marker left in the change feed for a loan that no longer exists in the loans table
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "loan_tombstones")
+public class LoanTombstone {
+    // Taken from the same sequence as loans.change_seq
+    @Id
+    @Column(name = "change_seq")
+    private Long changeSeq;
+
+    @Column(name = "loan_id", nullable = false)
+    private Long loanId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Reason reason;
+
+    @Column(nullable = false)
+    private LocalDateTime removedAt;
+
+    public enum Reason {
+        DELETED,   // withdrawn by the customer while pending
+        ARCHIVED   // moved to archived_loans
+    }
+}
@@ -0,0 +1,11 @@
+package com.ryanm.loan.model;
+
+// Dimension the portfolio analytics breakdown is grouped on
+public enum PortfolioGroupBy {
+    NONE,      // one row for the whole filtered book
+    TERM,      // term in months
+    STATUS,    // loan status
+    REVIEWER,  // reviewing manager id
+    MONTH,     // month the loan was applied for
+    AMOUNT     // amount histogram, bucketed by bucketSize
+}
@@ -0,0 +1,8 @@
+package com.ryanm.loan.model;
+
+// Order in which managers are handed PENDING loans from the review queue
+public enum ReviewPriority {
+    AGE,     // oldest application first
+    AMOUNT,  // largest amount first
+    INCOME   // highest applicant income first
+}
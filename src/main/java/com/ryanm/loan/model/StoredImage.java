@@ -0,0 +1,39 @@
+package com.ryanm.loan.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "stored_images")
+public class StoredImage {
+    // Content filename: SHA-256 of the bytes plus extension (or the original name for legacy uploads)
+    @Id
+    @Column(length = 100)
+    private String filename;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(nullable = false)
+    private int refCount;
+
+    // Set when refCount drops to zero; the garbage collector removes the file after a grace period
+    private LocalDateTime orphanedAt;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
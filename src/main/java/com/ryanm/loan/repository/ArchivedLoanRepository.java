@@ -0,0 +1,35 @@
+package com.ryanm.loan.repository;
+
+import com.ryanm.loan.model.ArchivedLoan;
+import com.ryanm.loan.model.Loan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArchivedLoanRepository extends JpaRepository<ArchivedLoan, Long> {
+    Page<ArchivedLoan> findByUserId(Long userId, Pageable pageable);
+
+    // Rows of [userId, amount, term, decided at] for archived loans in the given status
+    @Query("select a.userId, a.amount, a.term, coalesce(a.updatedAt, a.createdAt) from ArchivedLoan a "
+            + "where a.userId in :userIds and a.status = :status")
+    List<Object[]> findTermsByUserIdIn(@Param("userIds") Collection<Long> userIds,
+                                       @Param("status") Loan.Status status);
+
+    @Modifying
+    @Query(value = "INSERT INTO archived_loans (id, amount, term, purpose, status, user_id, user_name, "
+            + "reviewed_by_id, reviewed_by_name, review_comment, created_at, updated_at, archived_at) "
+            + "SELECT l.id, l.amount, l.term, l.purpose, l.status, l.user_id, u.name, "
+            + "l.reviewed_by, r.name, l.review_comment, l.created_at, l.updated_at, :now "
+            + "FROM loans l JOIN users u ON u.id = l.user_id LEFT JOIN users r ON r.id = l.reviewed_by "
+            + "WHERE l.id IN (:ids)", nativeQuery = true)
+    int copyFromLoans(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,21 @@
+package com.ryanm.loan.repository;
+
+import com.ryanm.loan.model.ArchivedUser;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Repository
+public interface ArchivedUserRepository extends JpaRepository<ArchivedUser, Long> {
+    @Modifying
+    @Query(value = "INSERT INTO archived_users (id, name, email, phone, income, role, created_at, updated_at, "
+            + "deleted_at, archived_at) "
+            + "SELECT u.id, u.name, u.email, u.phone, u.income, u.role, u.created_at, u.updated_at, "
+            + "u.deleted_at, :now FROM users u WHERE u.id IN (:ids)", nativeQuery = true)
+    int copyFromUsers(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,46 @@
+package com.ryanm.loan.repository;
+
+import com.ryanm.loan.model.LoanDocument;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LoanDocumentRepository extends JpaRepository<LoanDocument, Long> {
+    List<LoanDocument> findByLoanIdOrderByIdAsc(Long loanId);
+
+    long countByLoanId(Long loanId);
+
+    @Query("select coalesce(sum(d.sizeBytes), 0) from LoanDocument d where d.loanId = :loanId")
+    long sumSizeByLoanId(@Param("loanId") Long loanId);
+
+    // Only one request wins the switch to COMPLETE, even if the last chunks arrive together
+    @Modifying(clearAutomatically = true)
+    @Query("update LoanDocument d set d.status = com.ryanm.loan.model.LoanDocument.Status.COMPLETE, "
+            + "d.completedAt = :now where d.id = :id "
+            + "and d.status = com.ryanm.loan.model.LoanDocument.Status.UPLOADING")
+    int claimCompletion(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update LoanDocument d set d.sha256 = :sha256 where d.id = :id")
+    int updateChecksum(@Param("id") Long id, @Param("sha256") String sha256);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update LoanDocument d set d.status = com.ryanm.loan.model.LoanDocument.Status.UPLOADING, "
+            + "d.completedAt = null where d.id = :id")
+    int reopen(@Param("id") Long id);
+
+    @Query("select d from LoanDocument d where d.status = com.ryanm.loan.model.LoanDocument.Status.UPLOADING "
+            + "and d.createdAt < :cutoff order by d.id")
+    List<LoanDocument> findAbandoned(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("delete from LoanDocument d where d.loanId = :loanId")
+    int deleteByLoanId(@Param("loanId") Long loanId);
+}
@@ -0,0 +1,18 @@
+package com.ryanm.loan.repository;
+
+import com.ryanm.loan.model.LoanEvent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LoanEventRepository extends JpaRepository<LoanEvent, Long> {
+    List<LoanEvent> findByLoanIdOrderByOccurredAtAscIdAsc(Long loanId);
+
+    Page<LoanEvent> findByOccurredAtGreaterThanEqualAndOccurredAtLessThan(
+            LocalDateTime from, LocalDateTime to, Pageable pageable);
+}
@@ -2,13 +2,88 @@ package com.ryanm.loan.repository;
 
 import com.ryanm.loan.model.Loan;
 import com.ryanm.loan.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+public interface LoanRepository extends JpaRepository<Loan, Long>, LoanRepositoryCustom {
     List<Loan> findByUser(User user);
     // Add more query methods as needed for filtering
+
+    // Keyset page of finalized loans last touched before the cutoff
+    @Query(value = "SELECT l.id FROM loans l WHERE l.status IN ('ACCEPTED', 'REJECTED', 'EXPIRED') "
+            + "AND COALESCE(l.updated_at, l.created_at) < :cutoff AND l.id > :afterId "
+            + "ORDER BY l.id LIMIT :limit", nativeQuery = true)
+    List<Long> findArchivableIds(@Param("cutoff") LocalDateTime cutoff,
+                                 @Param("afterId") long afterId,
+                                 @Param("limit") int limit);
+
+    // Rows of [userId, status, sum(amount)]
+    @Query("select l.user.id, l.status, sum(l.amount) from Loan l "
+            + "where l.user.id in :userIds and l.status in :statuses group by l.user.id, l.status")
+    List<Object[]> sumAmountsByUserAndStatus(@Param("userIds") Collection<Long> userIds,
+                                             @Param("statuses") Collection<Loan.Status> statuses);
+
+    @Query("select l from Loan l join fetch l.user left join fetch l.reviewedBy where l.id in :ids")
+    List<Loan> findAllWithUsersByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Read-only transaction of its own so single-flight loads, which run outside any service transaction,
+    // can still be routed to the read replica
+    @Transactional(readOnly = true)
+    @Query("select l from Loan l join fetch l.user left join fetch l.reviewedBy where l.id = :id")
+    Optional<Loan> findWithUsersById(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Loan l set l.claimedById = :managerId, l.claimExpiresAt = :expiresAt where l.id in :ids")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("managerId") Long managerId,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Re-checks PENDING so a loan reviewed since it was selected is left alone; native for the sequence
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE loans SET status = 'EXPIRED', updated_at = :now, version = version + 1, "
+            + "change_seq = NEXT VALUE FOR loan_change_seq, changed_at = :now "
+            + "WHERE id IN (:ids) AND status = 'PENDING'", nativeQuery = true)
+    int expire(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Moves a loan to the head of the change feed. Flushes first, so the entity update it follows has
+    // been written by the time the new sequence value is taken.
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE loans SET change_seq = NEXT VALUE FOR loan_change_seq, changed_at = :now "
+            + "WHERE id = :id", nativeQuery = true)
+    int markChanged(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Same for every loan of a user, e.g. when the user is deleted and their loans now report userDeleted
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE loans SET change_seq = NEXT VALUE FOR loan_change_seq, changed_at = :now "
+            + "WHERE user_id = :userId", nativeQuery = true)
+    int markChangedByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    // Page of the change feed; changes stamped at or after settledBefore are left for a later poll
+    @Query("select l from Loan l join fetch l.user left join fetch l.reviewedBy "
+            + "where l.changeSeq > :since and l.changedAt < :settledBefore order by l.changeSeq")
+    List<Loan> findChangedSince(@Param("since") long since,
+                                @Param("settledBefore") LocalDateTime settledBefore,
+                                Pageable pageable);
+
+    // Serializes work on one loan, e.g. document uploads that must not both pass the per-loan quota
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from Loan l where l.id = :id")
+    Optional<Loan> findByIdForUpdate(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from Loan l where l.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 } 
\ No newline at end of file
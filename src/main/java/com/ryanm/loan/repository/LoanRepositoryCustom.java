@@ -0,0 +1,14 @@
+package com.ryanm.loan.repository;
+
+import com.ryanm.loan.model.ReviewPriority;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface LoanRepositoryCustom {
+    // Locks and returns up to limit unclaimed (or lease-expired) PENDING loan ids, skipping rows locked by others
+    List<Long> lockClaimableIds(ReviewPriority priority, LocalDateTime now, int limit);
+
+    // Locks the next keyset page of unclaimed PENDING loans created before the cutoff, skipping locked rows
+    List<Long> lockExpirableIds(LocalDateTime cutoff, LocalDateTime now, long afterId, int limit);
+}
@@ -0,0 +1,49 @@
+package com.ryanm.loan.repository;
+
+import com.ryanm.loan.model.ReviewPriority;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class LoanRepositoryImpl implements LoanRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> lockClaimableIds(ReviewPriority priority, LocalDateTime now, int limit) {
+        String orderBy = switch (priority) {
+            case AGE -> "l.created_at, l.id";
+            case AMOUNT -> "l.amount DESC, l.id";
+            case INCOME -> "(SELECT u.income FROM users u WHERE u.id = l.user_id) DESC NULLS LAST, l.id";
+        };
+        // SKIP LOCKED lets concurrent claimers take disjoint rows instead of queueing on each other
+        List<Number> ids = entityManager.createNativeQuery(
+                        "SELECT l.id FROM loans l WHERE l.status = 'PENDING' "
+                                + "AND (l.claim_expires_at IS NULL OR l.claim_expires_at < :now) "
+                                + "ORDER BY " + orderBy + " LIMIT :limit FOR UPDATE SKIP LOCKED")
+                .setParameter("now", now)
+                .setParameter("limit", limit)
+                .getResultList();
+        return ids.stream().map(Number::longValue).toList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> lockExpirableIds(LocalDateTime cutoff, LocalDateTime now, long afterId, int limit) {
+        // Rows a manager is reviewing right now are locked and skipped; the next run picks them up if still stale
+        List<Number> ids = entityManager.createNativeQuery(
+                        "SELECT l.id FROM loans l WHERE l.status = 'PENDING' AND l.created_at < :cutoff "
+                                + "AND l.id > :afterId "
+                                + "AND (l.claim_expires_at IS NULL OR l.claim_expires_at < :now) "
+                                + "ORDER BY l.id LIMIT :limit FOR UPDATE SKIP LOCKED")
+                .setParameter("cutoff", cutoff)
+                .setParameter("afterId", afterId)
+                .setParameter("now", now)
+                .setParameter("limit", limit)
+                .getResultList();
+        return ids.stream().map(Number::longValue).toList();
+    }
+}
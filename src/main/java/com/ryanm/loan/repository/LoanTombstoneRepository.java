@@ -0,0 +1,32 @@
+package com.ryanm.loan.repository;
+
+import com.ryanm.loan.model.LoanTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LoanTombstoneRepository extends JpaRepository<LoanTombstone, Long> {
+
+    // Must run while the loan rows still exist
+    @Modifying
+    @Query(value = "INSERT INTO loan_tombstones (change_seq, loan_id, user_id, reason, removed_at) "
+            + "SELECT NEXT VALUE FOR loan_change_seq, l.id, l.user_id, :reason, :now "
+            + "FROM loans l WHERE l.id IN (:ids)", nativeQuery = true)
+    int recordRemoved(@Param("ids") Collection<Long> ids,
+                      @Param("reason") String reason,
+                      @Param("now") LocalDateTime now);
+
+    @Query("select t from LoanTombstone t where t.changeSeq > :since and t.removedAt < :settledBefore "
+            + "order by t.changeSeq")
+    List<LoanTombstone> findChangedSince(@Param("since") long since,
+                                         @Param("settledBefore") LocalDateTime settledBefore,
+                                         Pageable pageable);
+}
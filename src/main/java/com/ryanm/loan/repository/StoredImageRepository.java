@@ -0,0 +1,32 @@
+package com.ryanm.loan.repository;
+
+import com.ryanm.loan.model.StoredImage;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StoredImageRepository extends JpaRepository<StoredImage, String> {
+    @Modifying
+    @Query("update StoredImage s set s.refCount = s.refCount + 1, s.orphanedAt = null where s.filename = :filename")
+    int incrementRefCount(@Param("filename") String filename);
+
+    @Modifying
+    @Query("update StoredImage s set s.refCount = s.refCount - 1, "
+            + "s.orphanedAt = case when s.refCount = 1 then :now else s.orphanedAt end "
+            + "where s.filename = :filename and s.refCount > 0")
+    int decrementRefCount(@Param("filename") String filename, @Param("now") LocalDateTime now);
+
+    // Locks the batch so a concurrent upload of the same content waits until its files are gone
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from StoredImage s where s.refCount = 0 and s.orphanedAt < :cutoff order by s.orphanedAt")
+    List<StoredImage> findOrphansForUpdate(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+}
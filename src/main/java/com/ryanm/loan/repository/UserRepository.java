@@ -2,13 +2,43 @@ package com.ryanm.loan.repository;
 
 import com.ryanm.loan.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    @Query("select u.email from User u where u.email in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
     Optional<User> findByEmailAndDeletedFalse(String email);
+
+    // Rows of [id, income]
+    @Query("select u.id, u.income from User u where u.id in :ids")
+    List<Object[]> findIncomes(@Param("ids") Collection<Long> ids);
+
+    @Query("select u.id from User u where u.id in :ids and u.deletedAt is null")
+    Set<Long> findActiveIds(@Param("ids") Collection<Long> ids);
+
+    // Keyset page of soft-deleted users that no loan references any more
+    @Query(value = "SELECT u.id FROM users u WHERE u.deleted = TRUE AND u.deleted_at < :cutoff AND u.id > :afterId "
+            + "AND NOT EXISTS (SELECT 1 FROM loans l WHERE l.user_id = u.id) "
+            + "AND NOT EXISTS (SELECT 1 FROM loans l WHERE l.reviewed_by = u.id) "
+            + "ORDER BY u.id LIMIT :limit", nativeQuery = true)
+    List<Long> findArchivableIds(@Param("cutoff") LocalDateTime cutoff,
+                                 @Param("afterId") long afterId,
+                                 @Param("limit") int limit);
+
+    @Modifying
+    @Query("delete from User u where u.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 } 
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.ryanm.loan.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Low-water mark for the loan change feed. Sequence values are taken inside transactions but become visible when
+ * those commit, which need not be in sequence order, so the feed must never pass a value that a running
+ * transaction could still commit below it. Every read-write transaction is tracked from begin to completion, and
+ * only changes stamped before the oldest one still running are final. Only this instance's transactions are
+ * seen: other writers of the loans table must commit as they write (plain JDBC auto-commit, migrations).
+ */
+@Slf4j
+@Component
+public class ChangeFeedWatermark implements TransactionExecutionListener {
+    // Transaction status -> when it began; statuses compare by identity
+    private final Map<TransactionExecution, LocalDateTime> running = new ConcurrentHashMap<>();
+
+    // A transaction open longer than this is assumed lost (its completion was never reported) and stops holding
+    // the feed back
+    @Value("${loans.changes.max-transaction-ms:600000}")
+    private long maxTransactionMs;
+
+    @Override
+    public void beforeBegin(TransactionExecution transaction) {
+        if (!transaction.isReadOnly()) {
+            running.put(transaction, LocalDateTime.now());
+        }
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        if (beginFailure != null) {
+            running.remove(transaction);
+        }
+    }
+
+    @Override
+    public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+        running.remove(transaction);
+    }
+
+    @Override
+    public void afterRollback(TransactionExecution transaction, Throwable rollbackFailure) {
+        running.remove(transaction);
+    }
+
+    // Changes stamped before this can no longer be joined by a lower sequence value
+    public LocalDateTime settledBefore() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expired = now.minusNanos(maxTransactionMs * 1_000_000);
+        LocalDateTime oldest = now;
+        Iterator<Map.Entry<TransactionExecution, LocalDateTime>> iterator = running.entrySet().iterator();
+        while (iterator.hasNext()) {
+            LocalDateTime began = iterator.next().getValue();
+            if (began.isBefore(expired)) {
+                iterator.remove();
+                log.warn("Transaction begun at {} never completed; no longer holding the change feed back", began);
+            } else if (began.isBefore(oldest)) {
+                oldest = began;
+            }
+        }
+        return oldest;
+    }
+}
@@ -0,0 +1,234 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.exception.BusinessException;
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.model.User;
+import com.ryanm.loan.repository.ArchivedLoanRepository;
+import com.ryanm.loan.repository.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running per-user totals of pending and approved borrowing, so the affordability check at apply time is a
+ * map lookup instead of a sum over the user's loans. A user's totals are loaded from the database on first use
+ * and then moved by every loan transition. Changes are applied inside the business transaction (atomically
+ * per user, so two concurrent applications cannot both slip under the cap) and reverted if it rolls back.
+ * Archiving does not repay a loan: approved loans moved to {@code archived_loans} count until their term has
+ * run from the decision date. A periodic reconciliation replaces totals that drifted from the database, e.g.
+ * after bulk loads or archived terms ending, and drops users nobody has touched for a while so the map only
+ * holds recently active borrowers.
+ */
+@Slf4j
+@Service
+public class ExposureLedger {
+    private static final List<Loan.Status> OPEN_STATUSES = List.of(Loan.Status.PENDING, Loan.Status.ACCEPTED);
+
+    private static final int LOAD_ATTEMPTS = 3;
+
+    // inFlight counts changes whose transaction has not finished yet; reconciliation leaves those users alone.
+    // usedAt is when a loan change last went through this user's entry
+    private record Exposure(BigDecimal pending, BigDecimal approved, int inFlight, long usedAt) {
+        static final Exposure EMPTY = new Exposure(BigDecimal.ZERO, BigDecimal.ZERO, 0, 0);
+
+        BigDecimal total() {
+            return pending.add(approved);
+        }
+
+        Exposure plus(BigDecimal pendingDelta, BigDecimal approvedDelta, int inFlightDelta) {
+            return new Exposure(pending.add(pendingDelta), approved.add(approvedDelta), inFlight + inFlightDelta,
+                    usedAt);
+        }
+
+        Exposure usedAt(long time) {
+            return new Exposure(pending, approved, inFlight, time);
+        }
+    }
+
+    private final LoanRepository loanRepository;
+    private final ArchivedLoanRepository archivedLoanRepository;
+    private final Map<Long, Exposure> exposures = new ConcurrentHashMap<>();
+    // Bumped by every change to a user that is not loaded; a load that overlapped one may have missed it
+    private final AtomicLong untrackedChanges = new AtomicLong();
+
+    @Value("${loan.exposure.enabled:true}")
+    private boolean enabled;
+
+    @Value("${loan.exposure.max-income-multiple:5}")
+    private BigDecimal maxIncomeMultiple;
+
+    @Value("${loan.exposure.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    @Value("${loan.exposure.idle-minutes:30}")
+    private long idleMinutes;
+
+    public ExposureLedger(LoanRepository loanRepository, ArchivedLoanRepository archivedLoanRepository) {
+        this.loanRepository = loanRepository;
+        this.archivedLoanRepository = archivedLoanRepository;
+    }
+
+    // Adds to the user's pending total, failing if that would take them over the cap; a negative delta always passes
+    public void reserve(User user, BigDecimal pendingDelta) {
+        if (!enabled || pendingDelta.signum() == 0) {
+            return;
+        }
+        BigDecimal cap = user.getIncome() != null ? user.getIncome().multiply(maxIncomeMultiple) : null;
+        // Repeats only if the idle sweep dropped the user between the load and the update
+        Exposure updated = null;
+        while (updated == null) {
+            loadIfAbsent(user.getId());
+            updated = exposures.computeIfPresent(user.getId(), (userId, exposure) -> {
+                if (cap != null && pendingDelta.signum() > 0
+                        && exposure.total().add(pendingDelta).compareTo(cap) > 0) {
+                    throw new BusinessException("Loan would exceed the maximum exposure of " + cap
+                            + " for this customer (current: " + exposure.total() + ").");
+                }
+                return exposure.plus(pendingDelta, BigDecimal.ZERO, 1).usedAt(System.currentTimeMillis());
+            });
+        }
+        onCompletion(user.getId(), pendingDelta, BigDecimal.ZERO);
+    }
+
+    // Moves amounts between totals without a cap check (approval, rejection, withdrawal)
+    public void adjust(Long userId, BigDecimal pendingDelta, BigDecimal approvedDelta) {
+        if (!enabled) {
+            return;
+        }
+        // Users not loaded yet will read the committed state when they are
+        Exposure updated = exposures.compute(userId, (id, current) -> {
+            if (current == null) {
+                untrackedChanges.incrementAndGet();
+                return null;
+            }
+            return current.plus(pendingDelta, approvedDelta, 1).usedAt(System.currentTimeMillis());
+        });
+        if (updated != null) {
+            onCompletion(userId, pendingDelta, approvedDelta);
+        }
+    }
+
+    public BigDecimal getExposure(Long userId) {
+        Exposure exposure = exposures.get(userId);
+        return exposure != null ? exposure.total() : null;
+    }
+
+    @Scheduled(fixedDelayString = "${loan.exposure.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        if (!enabled || exposures.isEmpty()) {
+            return;
+        }
+        evictIdle();
+        List<Long> userIds = new ArrayList<>(exposures.keySet());
+        int corrected = 0;
+        for (int from = 0; from < userIds.size(); from += reconcileBatchSize) {
+            List<Long> batch = userIds.subList(from, Math.min(userIds.size(), from + reconcileBatchSize));
+            // Snapshot before reading so any change made after it makes the conditional replace below fail
+            Map<Long, Exposure> before = new HashMap<>();
+            for (Long userId : batch) {
+                Exposure exposure = exposures.get(userId);
+                if (exposure != null && exposure.inFlight() == 0) {
+                    before.put(userId, exposure);
+                }
+            }
+            if (before.isEmpty()) {
+                continue;
+            }
+            Map<Long, Exposure> actual = loadAll(before.keySet().stream().toList());
+            for (Map.Entry<Long, Exposure> entry : before.entrySet()) {
+                Exposure held = entry.getValue();
+                Exposure fresh = actual.getOrDefault(entry.getKey(), Exposure.EMPTY).usedAt(held.usedAt());
+                if (held.pending().compareTo(fresh.pending()) != 0 || held.approved().compareTo(fresh.approved()) != 0) {
+                    if (exposures.replace(entry.getKey(), held, fresh)) {
+                        corrected++;
+                    }
+                }
+            }
+        }
+        if (corrected > 0) {
+            log.info("Exposure reconciliation corrected {} of {} users", corrected, userIds.size());
+        }
+    }
+
+    private void onCompletion(Long userId, BigDecimal pendingDelta, BigDecimal approvedDelta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            exposures.computeIfPresent(userId, (id, current) -> current.plus(BigDecimal.ZERO, BigDecimal.ZERO, -1));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                boolean rolledBack = status != STATUS_COMMITTED;
+                exposures.computeIfPresent(userId, (id, current) -> rolledBack
+                        ? current.plus(pendingDelta.negate(), approvedDelta.negate(), -1)
+                        : current.plus(BigDecimal.ZERO, BigDecimal.ZERO, -1));
+            }
+        });
+    }
+
+    // Drops users with nothing in flight whose totals have not moved within the idle period
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(idleMinutes);
+        int before = exposures.size();
+        for (Long userId : new ArrayList<>(exposures.keySet())) {
+            exposures.computeIfPresent(userId, (id, current) ->
+                    current.inFlight() == 0 && current.usedAt() < cutoff ? null : current);
+        }
+        int evicted = before - exposures.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle users from the exposure ledger", evicted);
+        }
+    }
+
+    // Queries outside the map so no bin stays locked during a database round trip. The result is only kept if
+    // no change to an unloaded user happened meanwhile, since that change may be missing from what was read;
+    // if that keeps happening the last read is kept anyway and reconciliation corrects it
+    private void loadIfAbsent(Long userId) {
+        for (int attempt = 1; !exposures.containsKey(userId); attempt++) {
+            long changesBefore = untrackedChanges.get();
+            Exposure loaded = loadAll(List.of(userId)).getOrDefault(userId, Exposure.EMPTY)
+                    .usedAt(System.currentTimeMillis());
+            boolean last = attempt >= LOAD_ATTEMPTS;
+            exposures.compute(userId, (id, current) -> current != null ? current
+                    : last || untrackedChanges.get() == changesBefore ? loaded : null);
+        }
+    }
+
+    private Map<Long, Exposure> loadAll(List<Long> userIds) {
+        Map<Long, Exposure> result = new HashMap<>();
+        for (Object[] row : loanRepository.sumAmountsByUserAndStatus(userIds, OPEN_STATUSES)) {
+            Long userId = (Long) row[0];
+            Loan.Status status = (Loan.Status) row[1];
+            BigDecimal sum = (BigDecimal) row[2];
+            Exposure exposure = result.getOrDefault(userId, Exposure.EMPTY);
+            result.put(userId, status == Loan.Status.PENDING
+                    ? exposure.plus(sum, BigDecimal.ZERO, 0)
+                    : exposure.plus(BigDecimal.ZERO, sum, 0));
+        }
+        // Read after the live loans: a loan archived in between is counted twice until the next reconciliation,
+        // never missed
+        LocalDateTime now = LocalDateTime.now();
+        for (Object[] row : archivedLoanRepository.findTermsByUserIdIn(userIds, Loan.Status.ACCEPTED)) {
+            LocalDateTime decidedAt = (LocalDateTime) row[3];
+            if (decidedAt.plusMonths((Integer) row[2]).isAfter(now)) {
+                Long userId = (Long) row[0];
+                result.put(userId, result.getOrDefault(userId, Exposure.EMPTY)
+                        .plus(BigDecimal.ZERO, (BigDecimal) row[1], 0));
+            }
+        }
+        return result;
+    }
+}
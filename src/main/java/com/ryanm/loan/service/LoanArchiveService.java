@@ -0,0 +1,156 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.dto.LoanResponse;
+import com.ryanm.loan.exception.ResourceNotFoundException;
+import com.ryanm.loan.model.ArchivedLoan;
+import com.ryanm.loan.model.LoanTombstone;
+import com.ryanm.loan.repository.ArchivedLoanRepository;
+import com.ryanm.loan.repository.ArchivedUserRepository;
+import com.ryanm.loan.repository.LoanRepository;
+import com.ryanm.loan.repository.LoanTombstoneRepository;
+import com.ryanm.loan.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Moves finalized loans and soft-deleted users into the archive tables. Work runs in keyset-ordered chunks,
+ * each copied and deleted in its own short transaction so no lock is held for longer than one chunk. Users
+ * are only archived once no loan references them, so loans are always archived first.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoanArchiveService {
+    private final LoanRepository loanRepository;
+    private final UserRepository userRepository;
+    private final ArchivedLoanRepository archivedLoanRepository;
+    private final ArchivedUserRepository archivedUserRepository;
+    private final LoanTombstoneRepository loanTombstoneRepository;
+    private final TransactionTemplate transactionTemplate;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Value("${archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${archive.loans.min-age-days:365}")
+    private long loanMinAgeDays;
+
+    @Value("${archive.users.min-age-days:90}")
+    private long userMinAgeDays;
+
+    @Value("${archive.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${archive.pause-ms:50}")
+    private long pauseMs;
+
+    @Scheduled(cron = "${archive.cron:0 30 2 * * *}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int loans = moveInChunks("loans", now.minusDays(loanMinAgeDays),
+                (cutoff, afterId) -> loanRepository.findArchivableIds(cutoff, afterId, chunkSize),
+                ids -> {
+                    archivedLoanRepository.copyFromLoans(ids, now);
+                    loanTombstoneRepository.recordRemoved(ids, LoanTombstone.Reason.ARCHIVED.name(), LocalDateTime.now());
+                    return loanRepository.deleteByIdIn(ids);
+                });
+        int users = moveInChunks("users", now.minusDays(userMinAgeDays),
+                (cutoff, afterId) -> userRepository.findArchivableIds(cutoff, afterId, chunkSize),
+                ids -> {
+                    archivedUserRepository.copyFromUsers(ids, now);
+                    return userRepository.deleteByIdIn(ids);
+                });
+        log.info("Archive run finished: {} loans, {} users moved", loans, users);
+    }
+
+    public LoanResponse getArchivedLoan(Long id) {
+        ArchivedLoan loan = archivedLoanRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Archived loan", id.toString()));
+        Set<Long> activeUsers = userRepository.findActiveIds(List.of(loan.getUserId()));
+        return mapToDto(loan, activeUsers);
+    }
+
+    public Page<LoanResponse> getArchivedLoans(Long userId, int page, int size) {
+        PageRequest pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
+        Page<ArchivedLoan> loans = userId != null
+                ? archivedLoanRepository.findByUserId(userId, pageable)
+                : archivedLoanRepository.findAll(pageable);
+        // One lookup for the whole page: archived users are deleted by definition
+        Set<Long> activeUsers = loans.isEmpty()
+                ? Set.of()
+                : userRepository.findActiveIds(loans.stream().map(ArchivedLoan::getUserId).collect(Collectors.toSet()));
+        return loans.map(loan -> mapToDto(loan, activeUsers));
+    }
+
+    private int moveInChunks(String table, LocalDateTime cutoff, IdPage idPage, Function<List<Long>, Integer> move) {
+        long afterId = 0;
+        int total = 0;
+        while (true) {
+            long from = afterId;
+            List<Long> ids = transactionTemplate.execute(status -> {
+                List<Long> chunk = idPage.next(cutoff, from);
+                if (!chunk.isEmpty()) {
+                    move.apply(chunk);
+                }
+                return chunk;
+            });
+            if (ids == null || ids.isEmpty()) {
+                return total;
+            }
+            total += ids.size();
+            afterId = ids.get(ids.size() - 1);
+            log.debug("Archived {} {} (up to id {})", ids.size(), table, afterId);
+            if (ids.size() < chunkSize) {
+                return total;
+            }
+            try {
+                // Give live traffic room between chunks
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return total;
+            }
+        }
+    }
+
+    // Same shape as LoanService responses; userDeleted holds unless the user is still active in users
+    private LoanResponse mapToDto(ArchivedLoan loan, Set<Long> activeUsers) {
+        return LoanResponse.builder()
+                .id(loan.getId())
+                .amount(loan.getAmount())
+                .term(loan.getTerm())
+                .purpose(loan.getPurpose())
+                .status(loan.getStatus().name())
+                .userId(loan.getUserId())
+                .userName(loan.getUserName())
+                .reviewedById(loan.getReviewedById())
+                .reviewedByName(loan.getReviewedByName())
+                .reviewComment(loan.getReviewComment())
+                .createdAt(loan.getCreatedAt() != null ? loan.getCreatedAt().format(FORMATTER) : null)
+                .updatedAt(loan.getUpdatedAt() != null ? loan.getUpdatedAt().format(FORMATTER) : null)
+                .userDeleted(!activeUsers.contains(loan.getUserId()))
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface IdPage {
+        List<Long> next(LocalDateTime cutoff, long afterId);
+    }
+}
@@ -0,0 +1,524 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.dto.LoanDocumentResponse;
+import com.ryanm.loan.dto.LoanDocumentUploadRequest;
+import com.ryanm.loan.exception.BusinessException;
+import com.ryanm.loan.exception.ResourceNotFoundException;
+import com.ryanm.loan.exception.StorageException;
+import com.ryanm.loan.exception.ValidationException;
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.model.LoanDocument;
+import com.ryanm.loan.model.Role;
+import com.ryanm.loan.model.User;
+import com.ryanm.loan.repository.ArchivedLoanRepository;
+import com.ryanm.loan.repository.LoanDocumentRepository;
+import com.ryanm.loan.repository.LoanRepository;
+import com.ryanm.loan.repository.UserRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Supporting documents for loan applications, uploaded in fixed-size chunks. Each chunk is streamed from the
+ * request through a small reusable buffer into a temporary file of its own, so memory use does not depend on
+ * the file size and chunks may arrive in any order. A chunk only counts once its SHA-256 matches the one the
+ * client sent; the request that then records it first moves its file into the chunk's slot, and every other
+ * copy is discarded, so verified bytes are never overwritten. After a disconnect the client asks which chunks
+ * are stored and sends the rest. When the last one lands the slots are joined, hashed, moved into place and
+ * served with zero-copy transfer. The declared size is reserved against the loan's quota when the upload starts.
+ */
+@Slf4j
+@Service
+public class LoanDocumentService {
+    public static final String CHUNK_CHECKSUM_HEADER = "X-Chunk-SHA256";
+    public static final String CONTENT_PATH_SUFFIX = "/content";
+    private static final String INSERT_CHUNK = "INSERT INTO loan_document_chunks "
+            + "(document_id, chunk_index, size_bytes, sha256, received_at) VALUES (?, ?, ?, ?, ?)";
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-fA-F]{64}");
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final String CACHE_CONTROL = "private, no-cache";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final LoanDocumentRepository documentRepository;
+    private final LoanRepository loanRepository;
+    private final ArchivedLoanRepository archivedLoanRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ZeroCopyFileSender fileSender;
+
+    @Value("${storage.loan-documents.dir:uploads/loan-documents}")
+    private String directory;
+
+    @Value("${storage.loan-documents.chunk-size:5242880}")
+    private int chunkSize;
+
+    @Value("${storage.loan-documents.max-file-bytes:26214400}")
+    private long maxFileBytes;
+
+    @Value("${storage.loan-documents.max-bytes-per-loan:52428800}")
+    private long maxBytesPerLoan;
+
+    @Value("${storage.loan-documents.max-documents-per-loan:20}")
+    private int maxDocumentsPerLoan;
+
+    @Value("${storage.loan-documents.allowed-content-types:application/pdf,image/jpeg,image/png}")
+    private List<String> allowedContentTypes;
+
+    @Value("${storage.loan-documents.abandon-after-hours:24}")
+    private long abandonAfterHours;
+
+    @Value("${storage.loan-documents.cleanup-batch-size:100}")
+    private int cleanupBatchSize;
+
+    public LoanDocumentService(LoanDocumentRepository documentRepository,
+                               LoanRepository loanRepository,
+                               ArchivedLoanRepository archivedLoanRepository,
+                               UserRepository userRepository,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               ZeroCopyFileSender fileSender) {
+        this.documentRepository = documentRepository;
+        this.loanRepository = loanRepository;
+        this.archivedLoanRepository = archivedLoanRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.fileSender = fileSender;
+    }
+
+    // Starts an upload; the response tells the client the chunk size and how many chunks to send
+    @Transactional
+    public LoanDocumentResponse startUpload(Long loanId, String userEmail, LoanDocumentUploadRequest request) {
+        User user = findUser(userEmail);
+        Loan loan = loanRepository.findByIdForUpdate(loanId)
+                .orElseThrow(() -> new ResourceNotFoundException("Loan", loanId.toString()));
+        if (!loan.getUser().getId().equals(user.getId())) {
+            throw new ValidationException("You can only attach documents to your own loans");
+        }
+        if (loan.getStatus() != Loan.Status.PENDING) {
+            throw new ValidationException("Documents can only be attached to pending loans");
+        }
+        String contentType = request.getContentType().toLowerCase(Locale.ROOT);
+        if (!allowedContentTypes.contains(contentType)) {
+            throw new ValidationException("Unsupported document type: " + request.getContentType()
+                    + ". Allowed types: " + allowedContentTypes);
+        }
+        if (request.getSize() > maxFileBytes) {
+            throw new ValidationException("Document exceeds the " + maxFileBytes + " byte limit");
+        }
+        // The loan row is locked, so concurrent uploads to the same loan see each other's reservations
+        if (documentRepository.countByLoanId(loanId) >= maxDocumentsPerLoan) {
+            throw new BusinessException("A loan can have at most " + maxDocumentsPerLoan + " documents.");
+        }
+        long used = documentRepository.sumSizeByLoanId(loanId);
+        if (used + request.getSize() > maxBytesPerLoan) {
+            throw new BusinessException("Document would exceed the " + maxBytesPerLoan
+                    + " byte quota for this loan (" + used + " bytes used).");
+        }
+        LoanDocument document = documentRepository.save(LoanDocument.builder()
+                .loanId(loanId)
+                .uploadedById(user.getId())
+                .filename(baseName(request.getFilename()))
+                .contentType(contentType)
+                .sizeBytes(request.getSize())
+                .chunkSize(chunkSize)
+                .totalChunks((int) ((request.getSize() + chunkSize - 1) / chunkSize))
+                .status(LoanDocument.Status.UPLOADING)
+                .sha256(request.getSha256() != null ? request.getSha256().toLowerCase(Locale.ROOT) : null)
+                .build());
+        log.info("Document upload {} started for loan {} by {}: {} bytes in {} chunks",
+                document.getId(), loanId, userEmail, document.getSizeBytes(), document.getTotalChunks());
+        return mapToDto(document, List.of());
+    }
+
+    // Streams one chunk into its own slot file; safe to repeat, and chunks may come in any order
+    public LoanDocumentResponse uploadChunk(Long loanId, Long documentId, int index, String userEmail,
+                                            String checksum, InputStream body) {
+        User user = findUser(userEmail);
+        LoanDocument document = findDocument(loanId, documentId);
+        if (!document.getUploadedById().equals(user.getId())) {
+            throw new ValidationException("You can only upload to your own documents");
+        }
+        if (document.getStatus() == LoanDocument.Status.COMPLETE) {
+            // A retry after the response to the last chunk was lost
+            return mapToDto(document, receivedChunks(documentId));
+        }
+        if (index < 0 || index >= document.getTotalChunks()) {
+            throw new ValidationException("Chunk index must be between 0 and " + (document.getTotalChunks() - 1));
+        }
+        if (checksum == null || !SHA256.matcher(checksum).matches()) {
+            throw new ValidationException("Header " + CHUNK_CHECKSUM_HEADER + " must carry the chunk's hex SHA-256");
+        }
+        if (isReceived(documentId, index)) {
+            // Never overwrite a verified chunk; a duplicate send changes nothing
+            return mapToDto(document, receivedChunks(documentId));
+        }
+        long offset = (long) index * document.getChunkSize();
+        int expectedLength = (int) Math.min(document.getChunkSize(), document.getSizeBytes() - offset);
+
+        Path slot = chunkPath(document, index);
+        Path temp = slot.resolveSibling(index + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createDirectories(slot.getParent());
+            String actual = writeChunk(body, temp, expectedLength, index);
+            if (!actual.equalsIgnoreCase(checksum)) {
+                throw new ValidationException("Checksum mismatch for chunk " + index + "; send it again");
+            }
+            storeChunk(documentId, index, expectedLength, actual, temp, slot);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to store chunk {} of document {}: {}", index, documentId, e.getMessage());
+            throw new StorageException("Chunk " + index + " could not be stored; send it again", e);
+        } finally {
+            // Gone already when this request's copy became the slot
+            deleteQuietly(temp);
+        }
+
+        List<Integer> received = receivedChunks(documentId);
+        if (received.size() == document.getTotalChunks()) {
+            complete(document);
+            document = findDocument(loanId, documentId);
+        }
+        return mapToDto(document, received);
+    }
+
+    public LoanDocumentResponse getDocument(Long loanId, Long documentId, String userEmail) {
+        checkReadAccess(loanId, findUser(userEmail));
+        return mapToDto(findDocument(loanId, documentId), receivedChunks(documentId));
+    }
+
+    public List<LoanDocumentResponse> getDocuments(Long loanId, String userEmail) {
+        checkReadAccess(loanId, findUser(userEmail));
+        return documentRepository.findByLoanIdOrderByIdAsc(loanId).stream()
+                .map(document -> mapToDto(document, null))
+                .toList();
+    }
+
+    public void download(Long loanId, Long documentId, String userEmail,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        checkReadAccess(loanId, findUser(userEmail));
+        LoanDocument document = findDocument(loanId, documentId);
+        Path path = filePath(document);
+        if (document.getStatus() != LoanDocument.Status.COMPLETE || document.getSha256() == null
+                || !Files.isRegularFile(path)) {
+            throw new ResourceNotFoundException("Document content", documentId.toString());
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(document.getFilename(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        fileSender.send(request, response, new ZeroCopyFileSender.StaticFile(path, document.getSizeBytes(),
+                "\"" + document.getSha256() + "\"", document.getContentType()), CACHE_CONTROL);
+    }
+
+    @Transactional
+    public void deleteDocument(Long loanId, Long documentId, String userEmail) {
+        User user = findUser(userEmail);
+        LoanDocument document = findDocument(loanId, documentId);
+        if (!document.getUploadedById().equals(user.getId())) {
+            throw new ValidationException("You can only delete your own documents");
+        }
+        Loan loan = loanRepository.findById(loanId)
+                .orElseThrow(() -> new ResourceNotFoundException("Loan", loanId.toString()));
+        if (loan.getStatus() != Loan.Status.PENDING) {
+            throw new ValidationException("Documents can only be removed from pending loans");
+        }
+        documentRepository.delete(document);
+        deleteFilesAfterCommit(List.of(chunkDirectory(document), partPath(document), filePath(document)));
+        log.info("Document {} of loan {} deleted by {}", documentId, loanId, userEmail);
+    }
+
+    // Called when the loan itself is deleted, inside that transaction; the files go once it commits
+    public void deleteAllForLoan(Long loanId) {
+        List<LoanDocument> documents = documentRepository.findByLoanIdOrderByIdAsc(loanId);
+        if (documents.isEmpty()) {
+            return;
+        }
+        documentRepository.deleteByLoanId(loanId);
+        deleteFilesAfterCommit(documents.stream()
+                .flatMap(document -> Stream.of(chunkDirectory(document), partPath(document), filePath(document)))
+                .toList());
+    }
+
+    // Uploads nobody finished within the grace period give their quota back
+    @Scheduled(fixedDelayString = "${storage.loan-documents.cleanup-interval-ms:3600000}")
+    public void removeAbandonedUploads() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(abandonAfterHours);
+        List<LoanDocument> abandoned = documentRepository.findAbandoned(cutoff, PageRequest.of(0, cleanupBatchSize));
+        for (LoanDocument document : abandoned) {
+            transactionTemplate.executeWithoutResult(status -> documentRepository.deleteById(document.getId()));
+            deleteQuietly(chunkDirectory(document));
+            deleteQuietly(partPath(document));
+        }
+        if (!abandoned.isEmpty()) {
+            log.info("Removed {} abandoned document uploads", abandoned.size());
+        }
+    }
+
+    private String writeChunk(InputStream body, Path temp, int expectedLength, int index) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+        long written = 0;
+        try (ReadableByteChannel in = Channels.newChannel(body);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                if (read == 0) {
+                    continue;
+                }
+                if (written + read > expectedLength) {
+                    throw new ValidationException("Chunk " + index + " is larger than " + expectedLength + " bytes");
+                }
+                buffer.flip();
+                digest.update(buffer.array(), 0, buffer.limit());
+                while (buffer.hasRemaining()) {
+                    written += out.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        if (written != expectedLength) {
+            throw new ValidationException("Chunk " + index + " has " + written + " bytes, expected " + expectedLength);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Only the request whose row insert wins gets to fill the slot, and the row commits after the file is in
+    // place; a concurrent send of the same chunk waits on the row, then finds it taken and keeps the slot as is
+    private void storeChunk(Long documentId, int index, int length, String sha256, Path temp, Path slot) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(INSERT_CHUNK, documentId, index, length, sha256,
+                        Timestamp.valueOf(LocalDateTime.now()));
+                try {
+                    moveAtomically(temp, slot);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (DuplicateKeyException e) {
+            log.debug("Chunk {} of document {} was already stored by another request", index, documentId);
+        }
+    }
+
+    private void complete(LoanDocument document) {
+        Long documentId = document.getId();
+        Integer claimed = transactionTemplate.execute(status ->
+                documentRepository.claimCompletion(documentId, LocalDateTime.now()));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+        Path part = partPath(document);
+        try {
+            String sha256 = assemble(document, part);
+            if (document.getSha256() != null && !document.getSha256().equals(sha256)) {
+                // Every chunk matched, so the declared hash was for a different file; start over. The slots go
+                // while the document still reads as complete, so no new chunk can land in them first
+                deleteQuietly(part);
+                deleteQuietly(chunkDirectory(document));
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.update("DELETE FROM loan_document_chunks WHERE document_id = ?", documentId);
+                    documentRepository.reopen(documentId);
+                });
+                throw new ValidationException("Assembled document does not match the declared SHA-256; "
+                        + "upload it again");
+            }
+            moveAtomically(part, filePath(document));
+            deleteQuietly(chunkDirectory(document));
+            transactionTemplate.executeWithoutResult(status -> documentRepository.updateChecksum(documentId, sha256));
+            log.info("Document {} of loan {} complete: {} bytes, sha256 {}", documentId, document.getLoanId(),
+                    document.getSizeBytes(), sha256);
+        } catch (IOException e) {
+            transactionTemplate.executeWithoutResult(status -> documentRepository.reopen(documentId));
+            deleteQuietly(part);
+            throw new StorageException("Document could not be assembled; send the last chunk again", e);
+        }
+    }
+
+    // Joins the slot files in order into the part file and returns the hash of the result
+    private String assemble(LoanDocument document, Path part) throws IOException {
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+        try (FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int index = 0; index < document.getTotalChunks(); index++) {
+                try (FileChannel in = FileChannel.open(chunkPath(document, index), StandardOpenOption.READ)) {
+                    while (in.read(buffer) >= 0) {
+                        buffer.flip();
+                        digest.update(buffer.array(), 0, buffer.limit());
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer);
+                        }
+                        buffer.clear();
+                    }
+                }
+            }
+            out.force(true);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void checkReadAccess(Long loanId, User user) {
+        if (user.getRole() == Role.MANAGER || user.getRole() == Role.AUDITOR) {
+            if (!loanRepository.existsById(loanId) && !archivedLoanRepository.existsById(loanId)) {
+                throw new ResourceNotFoundException("Loan", loanId.toString());
+            }
+            return;
+        }
+        Loan loan = loanRepository.findById(loanId)
+                .orElseThrow(() -> new ResourceNotFoundException("Loan", loanId.toString()));
+        if (!loan.getUser().getId().equals(user.getId())) {
+            throw new ValidationException("You can only view documents of your own loans");
+        }
+    }
+
+    private User findUser(String email) {
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("User", email));
+    }
+
+    private LoanDocument findDocument(Long loanId, Long documentId) {
+        return documentRepository.findById(documentId)
+                .filter(document -> document.getLoanId().equals(loanId))
+                .orElseThrow(() -> new ResourceNotFoundException("Document", documentId.toString()));
+    }
+
+    private boolean isReceived(Long documentId, int index) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM loan_document_chunks WHERE document_id = ? AND chunk_index = ?",
+                Integer.class, documentId, index);
+        return count != null && count > 0;
+    }
+
+    private List<Integer> receivedChunks(Long documentId) {
+        return jdbcTemplate.queryForList(
+                "SELECT chunk_index FROM loan_document_chunks WHERE document_id = ? ORDER BY chunk_index",
+                Integer.class, documentId);
+    }
+
+    private Path partPath(LoanDocument document) {
+        return Paths.get(directory, document.getLoanId().toString(), document.getId() + ".part");
+    }
+
+    private Path chunkDirectory(LoanDocument document) {
+        return Paths.get(directory, document.getLoanId().toString(), document.getId() + ".chunks");
+    }
+
+    private Path chunkPath(LoanDocument document, int index) {
+        return chunkDirectory(document).resolve(Integer.toString(index));
+    }
+
+    private Path filePath(LoanDocument document) {
+        return Paths.get(directory, document.getLoanId().toString(), document.getId().toString());
+    }
+
+    // Keeps only the last path segment of a client-supplied name
+    private static String baseName(String filename) {
+        String name = filename.substring(Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\')) + 1).trim();
+        if (name.isEmpty()) {
+            throw new ValidationException("Filename is required");
+        }
+        return name;
+    }
+
+    private static void deleteFilesAfterCommit(List<Path> paths) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            paths.forEach(LoanDocumentService::deleteQuietly);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                paths.forEach(LoanDocumentService::deleteQuietly);
+            }
+        });
+    }
+
+    // Files, or a chunk directory together with its slots
+    private static void deleteQuietly(Path path) {
+        try {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> entries = Files.list(path)) {
+                    entries.forEach(LoanDocumentService::deleteQuietly);
+                }
+            }
+            Files.deleteIfExists(path);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to delete document file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private LoanDocumentResponse mapToDto(LoanDocument document, List<Integer> receivedChunks) {
+        boolean complete = document.getStatus() == LoanDocument.Status.COMPLETE;
+        return LoanDocumentResponse.builder()
+                .id(document.getId())
+                .loanId(document.getLoanId())
+                .filename(document.getFilename())
+                .contentType(document.getContentType())
+                .size(document.getSizeBytes())
+                .chunkSize(document.getChunkSize())
+                .totalChunks(document.getTotalChunks())
+                .receivedChunks(receivedChunks)
+                .status(document.getStatus().name())
+                .sha256(complete ? document.getSha256() : null)
+                .downloadUrl(complete ? "/api/v1/loans/" + document.getLoanId() + "/documents/"
+                        + document.getId() + CONTENT_PATH_SUFFIX : null)
+                .createdAt(document.getCreatedAt() != null ? document.getCreatedAt().format(FORMATTER) : null)
+                .completedAt(document.getCompletedAt() != null ? document.getCompletedAt().format(FORMATTER) : null)
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.event.LoanChangedEvent;
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.model.LoanEvent;
+import com.ryanm.loan.repository.LoanRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Expires PENDING loans nobody reviewed within the configured age. Work runs in keyset-ordered chunks: each
+ * chunk locks its rows with SKIP LOCKED (so loans being approved or rejected right now are left alone), flips
+ * them with one set-based update and commits, then the job pauses before the next chunk. Reviews that read a
+ * loan before it expired fail on the version check instead of overwriting the EXPIRED status.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoanExpiryService {
+    private static final String ACTOR = "system";
+
+    private final LoanRepository loanRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExposureLedger exposureLedger;
+
+    @Value("${loan.expiry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${loan.expiry.pending-max-age-days:30}")
+    private long maxAgeDays;
+
+    @Value("${loan.expiry.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${loan.expiry.pause-ms:100}")
+    private long pauseMs;
+
+    @Value("${loan.expiry.progress-every-chunks:20}")
+    private int progressEveryChunks;
+
+    @Scheduled(cron = "${loan.expiry.cron:0 0 2 * * *}")
+    public void expireStaleLoans() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(maxAgeDays);
+        long start = System.nanoTime();
+        long afterId = 0;
+        long expired = 0;
+        int chunks = 0;
+        while (true) {
+            long from = afterId;
+            ChunkResult chunk = transactionTemplate.execute(status -> expireChunk(cutoff, from));
+            if (chunk == null || chunk.lastId() == null) {
+                break;
+            }
+            expired += chunk.expired();
+            afterId = chunk.lastId();
+            chunks++;
+            if (chunks % progressEveryChunks == 0) {
+                log.info("Loan expiry in progress: {} loans expired (up to id {}), {} rows/s",
+                        expired, afterId, rate(expired, start));
+            }
+            if (chunk.selected() < chunkSize) {
+                break;
+            }
+            try {
+                // Bounds how long any lock is held and leaves I/O headroom for live traffic
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.info("Loan expiry interrupted after {} loans; the next run resumes from the oldest", expired);
+                return;
+            }
+        }
+        log.info("Loan expiry finished: {} loans expired in {} chunks, {} rows/s", expired, chunks, rate(expired, start));
+    }
+
+    private record ChunkResult(int selected, int expired, Long lastId) {
+    }
+
+    private ChunkResult expireChunk(LocalDateTime cutoff, long afterId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = loanRepository.lockExpirableIds(cutoff, now, afterId, chunkSize);
+        if (ids.isEmpty()) {
+            return new ChunkResult(0, 0, null);
+        }
+        int updated = loanRepository.expire(ids, now);
+        if (updated > 0) {
+            // Loaded after the update (which cleared the persistence context) so events carry the new state.
+            // The ids were PENDING and locked by us, so every EXPIRED one among them was expired just now.
+            for (Loan loan : loanRepository.findAllWithUsersByIdIn(ids)) {
+                if (loan.getStatus() == Loan.Status.EXPIRED) {
+                    exposureLedger.adjust(loan.getUser().getId(), loan.getAmount().negate(), BigDecimal.ZERO);
+                    eventPublisher.publishEvent(LoanChangedEvent.of(LoanEvent.Type.EXPIRED, loan, ACTOR));
+                }
+            }
+        }
+        return new ChunkResult(ids.size(), updated, ids.get(ids.size() - 1));
+    }
+
+    private static long rate(long rows, long startNanos) {
+        long elapsedMs = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        return rows * 1000 / elapsedMs;
+    }
+}
@@ -0,0 +1,220 @@
+package com.ryanm.loan.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ryanm.loan.dto.LoanEventResponse;
+import com.ryanm.loan.event.LoanChangedEvent;
+import com.ryanm.loan.model.LoanEvent;
+import com.ryanm.loan.repository.LoanEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Append-only loan history. Events are queued on a lock-free buffer once the business transaction has
+ * committed and written to {@code loan_events} by a background flush in JDBC batches, so loan requests never
+ * wait on audit inserts. A crash can lose at most the events of the last flush interval.
+ *
+ * <p>Each batch is inserted in one transaction. A failed batch is retried with exponential backoff; once it has
+ * used up its attempts (or too many batches are already waiting) its events are appended as JSON lines to the
+ * dead-letter file, from which they can be re-inserted by hand.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoanHistoryService {
+    private static final String INSERT_EVENT = "INSERT INTO loan_events (loan_id, type, actor, user_id, amount, "
+            + "term, purpose, status, reviewed_by_id, review_comment, occurred_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final LoanEventRepository loanEventRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Queue<LoanChangedEvent> buffer = new ConcurrentLinkedQueue<>();
+    // Failed batches waiting for their next attempt; only touched by the (single) flush thread
+    private final Deque<FailedBatch> retries = new ArrayDeque<>();
+
+    private record FailedBatch(List<LoanChangedEvent> events, int attempts, long retryAt) {
+    }
+
+    @Value("${history.flush-batch-size:500}")
+    private int batchSize;
+
+    @Value("${history.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${history.retry.backoff-ms:1000}")
+    private long backoffMs;
+
+    @Value("${history.retry.max-batches:100}")
+    private int maxRetryBatches;
+
+    @Value("${history.dead-letter-file:./data/loan-history-dead-letter.jsonl}")
+    private Path deadLetterFile;
+
+    @TransactionalEventListener
+    public void onLoanChanged(LoanChangedEvent event) {
+        buffer.offer(event);
+    }
+
+    @Scheduled(fixedDelayString = "${history.flush-interval-ms:500}")
+    public synchronized void flush() {
+        retryDue(false);
+        List<LoanChangedEvent> batch = new ArrayList<>(batchSize);
+        LoanChangedEvent event;
+        while ((event = buffer.poll()) != null) {
+            batch.add(event);
+            if (batch.size() == batchSize) {
+                write(batch, 0);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, 0);
+        }
+    }
+
+    // No later flush will come: give waiting batches one last try, then dead-letter what still fails
+    @PreDestroy
+    public synchronized void flushOnShutdown() {
+        flush();
+        retryDue(true);
+        FailedBatch failed;
+        while ((failed = retries.poll()) != null) {
+            deadLetter(failed.events(), "shutdown");
+        }
+    }
+
+    public List<LoanEventResponse> getLoanHistory(Long loanId) {
+        return loanEventRepository.findByLoanIdOrderByOccurredAtAscIdAsc(loanId).stream()
+                .map(this::mapToDto)
+                .toList();
+    }
+
+    public Page<LoanEventResponse> getHistory(LocalDateTime from, LocalDateTime to, int page, int size) {
+        PageRequest pageable = PageRequest.of(page, size, Sort.by("occurredAt", "id"));
+        return loanEventRepository.findByOccurredAtGreaterThanEqualAndOccurredAtLessThan(from, to, pageable)
+                .map(this::mapToDto);
+    }
+
+    private void retryDue(boolean all) {
+        long now = System.currentTimeMillis();
+        int waiting = retries.size();
+        for (int i = 0; i < waiting; i++) {
+            FailedBatch failed = retries.poll();
+            if (all || failed.retryAt() <= now) {
+                write(failed.events(), failed.attempts());
+            } else {
+                retries.addLast(failed);
+            }
+        }
+    }
+
+    // One transaction per batch, so a retry never duplicates rows from a partially applied attempt
+    private void write(List<LoanChangedEvent> batch, int previousAttempts) {
+        try {
+            List<Object[]> rows = batch.stream().map(LoanHistoryService::toRow).toList();
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_EVENT, rows));
+        } catch (RuntimeException e) {
+            int attempts = previousAttempts + 1;
+            if (attempts >= maxAttempts || retries.size() >= maxRetryBatches) {
+                log.error("Failed to write {} loan history events after {} attempts: {}",
+                        batch.size(), attempts, e.getMessage(), e);
+                deadLetter(batch, e.getMessage());
+                return;
+            }
+            long delay = backoffMs << (attempts - 1);
+            log.warn("Failed to write {} loan history events (attempt {}), retrying in {} ms: {}",
+                    batch.size(), attempts, delay, e.getMessage());
+            retries.addLast(new FailedBatch(batch, attempts, System.currentTimeMillis() + delay));
+        }
+    }
+
+    // Appends the events as JSON lines and forces them to disk; if even that fails, the rows go to the error log
+    private void deadLetter(List<LoanChangedEvent> events, String reason) {
+        try {
+            Path parent = deadLetterFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            StringBuilder lines = new StringBuilder();
+            for (LoanChangedEvent event : events) {
+                lines.append(objectMapper.writeValueAsString(event)).append('\n');
+            }
+            try (FileChannel channel = FileChannel.open(deadLetterFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(true);
+            }
+            log.error("Wrote {} undeliverable loan history events to {} ({})", events.size(), deadLetterFile, reason);
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not write loan history dead-letter file {}: {}", deadLetterFile, e.getMessage(), e);
+            for (LoanChangedEvent event : events) {
+                log.error("Undeliverable loan history event: {}", event);
+            }
+        }
+    }
+
+    private static Object[] toRow(LoanChangedEvent event) {
+        return new Object[]{
+                event.loanId(),
+                event.type().name(),
+                event.actor(),
+                event.userId(),
+                event.amount(),
+                event.term(),
+                event.purpose(),
+                event.status() != null ? event.status().name() : null,
+                event.reviewedById(),
+                event.reviewComment(),
+                Timestamp.valueOf(event.occurredAt())
+        };
+    }
+
+    private LoanEventResponse mapToDto(LoanEvent event) {
+        return LoanEventResponse.builder()
+                .id(event.getId())
+                .loanId(event.getLoanId())
+                .type(event.getType().name())
+                .actor(event.getActor())
+                .userId(event.getUserId())
+                .amount(event.getAmount())
+                .term(event.getTerm())
+                .purpose(event.getPurpose())
+                .status(event.getStatus() != null ? event.getStatus().name() : null)
+                .reviewedById(event.getReviewedById())
+                .reviewComment(event.getReviewComment())
+                .occurredAt(event.getOccurredAt().format(FORMATTER))
+                .build();
+    }
+}
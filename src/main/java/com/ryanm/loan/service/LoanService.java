@@ -1,28 +1,49 @@
 package com.ryanm.loan.service;
 
+import com.ryanm.loan.config.ReplicaRouting;
 import com.ryanm.loan.dto.LoanApplicationRequest;
+import com.ryanm.loan.dto.LoanChangeResponse;
+import com.ryanm.loan.dto.LoanChangesResponse;
 import com.ryanm.loan.dto.LoanResponse;
 import com.ryanm.loan.dto.LoanReviewRequest;
 import com.ryanm.loan.dto.LoanUpdateRequest;
+import com.ryanm.loan.event.LoanChangedEvent;
 import com.ryanm.loan.exception.ResourceNotFoundException;
 import com.ryanm.loan.exception.ValidationException;
 import com.ryanm.loan.exception.BusinessException;
 import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.model.LoanEvent;
+import com.ryanm.loan.model.LoanTombstone;
+import com.ryanm.loan.model.ReviewPriority;
 import com.ryanm.loan.model.User;
 import com.ryanm.loan.repository.LoanRepository;
+import com.ryanm.loan.repository.LoanTombstoneRepository;
 import com.ryanm.loan.repository.UserRepository;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -31,13 +52,41 @@ import java.util.stream.Collectors;
 public class LoanService {
     private final LoanRepository loanRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExposureLedger exposureLedger;
+    private final LoanDocumentService loanDocumentService;
+    private final LoanTombstoneRepository loanTombstoneRepository;
+    private final ChangeFeedWatermark changeFeedWatermark;
+    // Only present when a read replica is configured
+    private final ObjectProvider<ReplicaRouting> replicaRouting;
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Concurrent lookups of the same hot loan share one query
+    private final SingleFlight<Long, LoanResponse> loanLookups = new SingleFlight<>();
+
+    @Value("${review-queue.priority:AGE}")
+    private ReviewPriority defaultPriority;
+
+    @Value("${review-queue.lease-minutes:15}")
+    private long leaseMinutes;
+
+    @Value("${review-queue.max-claim:50}")
+    private int maxClaim;
+
+    @Value("${loans.batch.max-ids:100}")
+    private int maxBatchIds;
+
+    @Value("${loans.changes.max-limit:1000}")
+    private int maxChangesLimit;
+
+    @Value("${loans.changes.settle-ms:500}")
+    private long changesSettleMs;
 
     @Transactional
     public LoanResponse applyForLoan(String userEmail, LoanApplicationRequest request) {
         log.info("User {} applying for loan", userEmail);
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new ResourceNotFoundException("User", userEmail));
+        exposureLedger.reserve(user, request.getAmount());
         Loan loan = Loan.builder()
                 .amount(request.getAmount())
                 .term(request.getTerm())
@@ -46,10 +95,12 @@ public class LoanService {
                 .user(user)
                 .build();
         loanRepository.save(loan);
+        eventPublisher.publishEvent(LoanChangedEvent.of(LoanEvent.Type.APPLIED, loan, userEmail));
         log.info("Loan application submitted by user {}: loanId={}", userEmail, loan.getId());
         return mapToDto(loan);
     }
 
+    @Transactional(readOnly = true)
     public Page<LoanResponse> getAllLoans(int page, int size, String status, String sort, String direction) {
         Sort sortObj = Sort.by(sort != null ? sort : "createdAt");
         sortObj = "desc".equalsIgnoreCase(direction) ? sortObj.descending() : sortObj.ascending();
@@ -65,10 +116,42 @@ public class LoanService {
         }
     }
 
+    // Not @Transactional: callers that join an in-flight load must not each hold a connection while waiting.
+    // The loan is fetched with its users, so the DTO is built without touching the session.
     public LoanResponse getLoanById(Long id) {
-        Loan loan = loanRepository.findById(id)
+        Supplier<LoanResponse> load = () -> loanRepository.findWithUsersById(id)
+                .map(this::mapToDto)
                 .orElseThrow(() -> new ResourceNotFoundException("Loan", id.toString()));
-        return mapToDto(loan);
+        ReplicaRouting routing = replicaRouting.getIfAvailable();
+        if (routing != null && routing.pinnedToPrimary()) {
+            // This user just wrote; a shared load may be reading the replica, or have started before the write
+            return load.get();
+        }
+        return loanLookups.execute(id, load);
+    }
+
+    // One IN query for many loans, in the order requested; unknown ids, and for customers other people's loans,
+    // are left out
+    @Transactional(readOnly = true)
+    public List<LoanResponse> getLoansByIds(List<Long> ids, UserDetails caller) {
+        List<Long> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinct.isEmpty()) {
+            throw new ValidationException("At least one loan id is required");
+        }
+        if (distinct.size() > maxBatchIds) {
+            throw new ValidationException("At most " + maxBatchIds + " loan ids can be requested at once");
+        }
+        boolean allLoans = caller.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(authority -> authority.equals("ROLE_MANAGER") || authority.equals("ROLE_AUDITOR"));
+        Map<Long, Loan> loans = loanRepository.findAllWithUsersByIdIn(distinct).stream()
+                .filter(loan -> allLoans || loan.getUser().getEmail().equals(caller.getUsername()))
+                .collect(Collectors.toMap(Loan::getId, Function.identity()));
+        return distinct.stream()
+                .map(loans::get)
+                .filter(Objects::nonNull)
+                .map(this::mapToDto)
+                .toList();
     }
 
     @Transactional
@@ -93,10 +176,19 @@ public class LoanService {
         if (loan.getStatus() == Loan.Status.REJECTED) {
             throw new BusinessException("Cannot approve a loan that has already been rejected.");
         }
+        if (loan.getStatus() == Loan.Status.EXPIRED) {
+            throw new BusinessException("Cannot approve a loan that has expired.");
+        }
+        checkNotClaimedByOther(loan, manager);
         loan.setStatus(Loan.Status.ACCEPTED);
+        exposureLedger.adjust(loan.getUser().getId(), loan.getAmount().negate(), loan.getAmount());
         loan.setReviewedBy(manager);
         loan.setReviewComment(request.getReviewComment());
+        loan.setClaimedById(null);
+        loan.setClaimExpiresAt(null);
         loanRepository.save(loan);
+        loanRepository.markChanged(loan.getId(), LocalDateTime.now());
+        eventPublisher.publishEvent(LoanChangedEvent.of(LoanEvent.Type.APPROVED, loan, managerEmail));
         log.info("Loan {} approved by manager {}", loanId, managerEmail);
         return mapToDto(loan);
     }
@@ -123,10 +215,19 @@ public class LoanService {
         if (loan.getStatus() == Loan.Status.REJECTED) {
             throw new BusinessException("Loan is already rejected.");
         }
+        if (loan.getStatus() == Loan.Status.EXPIRED) {
+            throw new BusinessException("Cannot reject a loan that has expired.");
+        }
+        checkNotClaimedByOther(loan, manager);
         loan.setStatus(Loan.Status.REJECTED);
+        exposureLedger.adjust(loan.getUser().getId(), loan.getAmount().negate(), BigDecimal.ZERO);
         loan.setReviewedBy(manager);
         loan.setReviewComment(request.getReviewComment());
+        loan.setClaimedById(null);
+        loan.setClaimExpiresAt(null);
         loanRepository.save(loan);
+        loanRepository.markChanged(loan.getId(), LocalDateTime.now());
+        eventPublisher.publishEvent(LoanChangedEvent.of(LoanEvent.Type.REJECTED, loan, managerEmail));
         log.info("Loan {} rejected by manager {}", loanId, managerEmail);
         return mapToDto(loan);
     }
@@ -142,10 +243,15 @@ public class LoanService {
         if (loan.getStatus() != Loan.Status.PENDING) {
             throw new ValidationException("Only pending loans can be updated");
         }
-        if (request.getAmount() != null) loan.setAmount(request.getAmount());
+        if (request.getAmount() != null) {
+            exposureLedger.reserve(loan.getUser(), request.getAmount().subtract(loan.getAmount()));
+            loan.setAmount(request.getAmount());
+        }
         if (request.getTerm() != null) loan.setTerm(request.getTerm());
         if (request.getPurpose() != null) loan.setPurpose(request.getPurpose());
         loanRepository.save(loan);
+        loanRepository.markChanged(loan.getId(), LocalDateTime.now());
+        eventPublisher.publishEvent(LoanChangedEvent.of(LoanEvent.Type.UPDATED, loan, userEmail));
         log.info("Loan {} updated by user {}", loanId, userEmail);
         return mapToDto(loan);
     }
@@ -161,10 +267,67 @@ public class LoanService {
         if (loan.getStatus() != Loan.Status.PENDING) {
             throw new ValidationException("Only pending loans can be deleted");
         }
+        loanDocumentService.deleteAllForLoan(loanId);
+        loanTombstoneRepository.recordRemoved(List.of(loanId), LoanTombstone.Reason.DELETED.name(), LocalDateTime.now());
         loanRepository.delete(loan);
+        exposureLedger.adjust(loan.getUser().getId(), loan.getAmount().negate(), BigDecimal.ZERO);
+        eventPublisher.publishEvent(LoanChangedEvent.of(LoanEvent.Type.DELETED, loan, userEmail));
         log.info("Loan {} deleted by user {}", loanId, userEmail);
     }
 
+    /**
+     * Loans created, updated, decided or removed since the cursor, in change order, for clients that mirror
+     * the loan book. Sequence values are taken before commit, so a newer change can become visible before an
+     * older one, and a cursor that moved past the older one would never see it. Changes stamped after the start
+     * of the oldest write transaction still running are therefore held back for a later poll, less a small
+     * settle margin for the time between stamping a change and taking its sequence value. The watermark only
+     * knows about transactions on the primary, so the feed always reads the primary: a lagging replica could
+     * show a newer change before an older committed one and move the cursor past it.
+     */
+    @Transactional(readOnly = true)
+    public LoanChangesResponse getChanges(long since, int limit) {
+        if (since < 0) {
+            throw new ValidationException("Cursor must not be negative");
+        }
+        if (limit < 1 || limit > maxChangesLimit) {
+            throw new ValidationException("Limit must be between 1 and " + maxChangesLimit);
+        }
+        ReplicaRouting routing = replicaRouting.getIfAvailable();
+        return routing != null ? routing.readFromPrimary(() -> readChanges(since, limit)) : readChanges(since, limit);
+    }
+
+    private LoanChangesResponse readChanges(long since, int limit) {
+        LocalDateTime settledBefore = changeFeedWatermark.settledBefore().minusNanos(changesSettleMs * 1_000_000);
+        // One extra row from each side tells whether another page is waiting
+        Pageable window = PageRequest.of(0, limit + 1);
+        List<LoanChangeResponse> changes = new ArrayList<>();
+        for (Loan loan : loanRepository.findChangedSince(since, settledBefore, window)) {
+            changes.add(LoanChangeResponse.builder()
+                    .seq(loan.getChangeSeq())
+                    .type("CHANGED")
+                    .loanId(loan.getId())
+                    .loan(mapToDto(loan))
+                    .build());
+        }
+        for (LoanTombstone tombstone : loanTombstoneRepository.findChangedSince(since, settledBefore, window)) {
+            changes.add(LoanChangeResponse.builder()
+                    .seq(tombstone.getChangeSeq())
+                    .type("REMOVED")
+                    .loanId(tombstone.getLoanId())
+                    .reason(tombstone.getReason().name())
+                    .build());
+        }
+        changes.sort(Comparator.comparingLong(LoanChangeResponse::getSeq));
+        boolean hasMore = changes.size() > limit;
+        List<LoanChangeResponse> page = hasMore ? changes.subList(0, limit) : changes;
+        return LoanChangesResponse.builder()
+                .changes(List.copyOf(page))
+                .nextCursor(page.isEmpty() ? since : page.get(page.size() - 1).getSeq())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
     public List<LoanResponse> getMyLoans(String userEmail) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new ResourceNotFoundException("User", userEmail));
@@ -172,6 +335,54 @@ public class LoanService {
         return loans.stream().map(this::mapToDto).collect(Collectors.toList());
     }
 
+    // Leases the next PENDING loans to a manager; concurrent claimers never receive the same loan
+    @Transactional
+    public List<LoanResponse> claimLoans(String managerEmail, int count, ReviewPriority priority) {
+        log.info("Manager {} claiming {} loans", managerEmail, count);
+        if (count < 1 || count > maxClaim) {
+            throw new ValidationException("Claim count must be between 1 and " + maxClaim);
+        }
+        User manager = userRepository.findByEmail(managerEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User", managerEmail));
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = loanRepository.lockClaimableIds(priority != null ? priority : defaultPriority, now, count);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        loanRepository.claim(ids, manager.getId(), now.plusMinutes(leaseMinutes));
+        List<Long> order = List.copyOf(ids);
+        List<LoanResponse> claimed = loanRepository.findAllWithUsersByIdIn(ids).stream()
+                .sorted(Comparator.comparingInt(loan -> order.indexOf(loan.getId())))
+                .map(this::mapToDto)
+                .toList();
+        log.info("Manager {} claimed loans {}", managerEmail, ids);
+        return claimed;
+    }
+
+    @Transactional
+    public void releaseClaim(Long loanId, String managerEmail) {
+        log.info("Manager {} releasing claim on loan {}", managerEmail, loanId);
+        Loan loan = loanRepository.findById(loanId)
+                .orElseThrow(() -> new ResourceNotFoundException("Loan", loanId.toString()));
+        User manager = userRepository.findByEmail(managerEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("User", managerEmail));
+        if (!manager.getId().equals(loan.getClaimedById())) {
+            throw new BusinessException("Loan is not claimed by you.");
+        }
+        loan.setClaimedById(null);
+        loan.setClaimExpiresAt(null);
+        loanRepository.save(loan);
+    }
+
+    private void checkNotClaimedByOther(Loan loan, User manager) {
+        if (loan.getClaimedById() != null
+                && !loan.getClaimedById().equals(manager.getId())
+                && loan.getClaimExpiresAt() != null
+                && loan.getClaimExpiresAt().isAfter(LocalDateTime.now())) {
+            throw new BusinessException("Loan is claimed by another manager.");
+        }
+    }
+
     // Helper method to map Loan entity to LoanResponse DTO
     private LoanResponse mapToDto(Loan loan) {
         return LoanResponse.builder()
@@ -0,0 +1,288 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.dto.LoanEventResponse;
+import com.ryanm.loan.event.LoanChangedEvent;
+import com.ryanm.loan.model.LoanEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes new and decided loans to manager dashboards over Server-Sent Events. Committed events go through one
+ * dispatcher thread that numbers them, keeps the most recent ones for {@code Last-Event-ID} resumption and
+ * fans them out to bounded per-subscriber buffers. Each buffer is drained on a virtual thread, so a client
+ * that reads slowly only holds its own writer. A subscriber whose buffer overflows loses the backlog and gets
+ * a {@code resync} event telling it to reload once; one that overflows again before that resync went out, or
+ * whose write has been blocked longer than the send timeout, is disconnected.
+ *
+ * <p>Event ids are {@code <epoch>-<sequence>}, with a new epoch on every start, so a client resuming with an
+ * id from before a restart is told to resync rather than matched against unrelated events.
+ */
+@Slf4j
+@Service
+public class LoanStreamService {
+    private static final Set<LoanEvent.Type> STREAMED_TYPES =
+            Set.of(LoanEvent.Type.APPLIED, LoanEvent.Type.APPROVED, LoanEvent.Type.REJECTED, LoanEvent.Type.EXPIRED);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private record StreamItem(long id, String name, Object data) {
+    }
+
+    private static final StreamItem RESYNC = new StreamItem(-1, "resync", "reload");
+    private static final StreamItem HEARTBEAT = new StreamItem(-1, null, null);
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final BlockingQueue<StreamItem> buffer;
+        final AtomicBoolean draining = new AtomicBoolean();
+        // Set on overflow, cleared once the resync it queued has been written
+        final AtomicBoolean resyncPending = new AtomicBoolean();
+        // System.nanoTime() when the current write started, 0 while idle
+        volatile long sendStartedAt;
+        volatile Thread sender;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(subscriberBuffer);
+        }
+
+        void offer(StreamItem item) {
+            if (!buffer.offer(item)) {
+                if (!resyncPending.compareAndSet(false, true)) {
+                    // Still full since the last overflow: the client is not reading at all
+                    disconnect(this, "buffer stayed full");
+                    return;
+                }
+                // Too slow to keep up: drop the backlog and ask the client to reload
+                buffer.clear();
+                buffer.offer(RESYNC);
+            }
+            scheduleDrain(this);
+        }
+    }
+
+    private final BlockingQueue<LoanChangedEvent> incoming;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Deque<StreamItem> recent = new ArrayDeque<>();
+    private final Object fanOutLock = new Object();
+    private final ExecutorService senders;
+    private final Thread dispatcher;
+    // Distinguishes this run's event ids from those handed out before a restart
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private long nextId = 1;
+
+    @Value("${loan-stream.subscriber-buffer:256}")
+    private int subscriberBuffer;
+
+    @Value("${loan-stream.replay-size:1000}")
+    private int replaySize;
+
+    @Value("${loan-stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${loan-stream.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    public LoanStreamService(@Value("${loan-stream.queue-capacity:10000}") int queueCapacity) {
+        this.incoming = new LinkedBlockingQueue<>(queueCapacity);
+        this.senders = Executors.newCachedThreadPool();
+        this.dispatcher = new Thread(this::dispatchLoop, "loan-stream-dispatcher");
+        this.dispatcher.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.interrupt();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    @TransactionalEventListener
+    public void onLoanChanged(LoanChangedEvent event) {
+        if (STREAMED_TYPES.contains(event.type()) && !incoming.offer(event)) {
+            log.warn("Loan stream queue full, dropping event for loan {}", event.loanId());
+        }
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        synchronized (fanOutLock) {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        }
+        log.debug("Loan stream subscriber added ({} active)", subscribers.size());
+        return emitter;
+    }
+
+    // Keeps idle connections open through proxies and detects clients that went away
+    @Scheduled(fixedDelayString = "${loan-stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.buffer.isEmpty()) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    // Disconnects subscribers whose current write has been blocked for longer than the send timeout
+    @Scheduled(fixedDelayString = "${loan-stream.stall-check-ms:1000}")
+    public void disconnectStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.sendStartedAt;
+            if (started != 0 && now - started > sendTimeoutMs * 1_000_000) {
+                disconnect(subscriber, "write blocked for more than " + sendTimeoutMs + " ms");
+            }
+        }
+    }
+
+    private void replay(Subscriber subscriber, String lastEventId) {
+        long lastSeen = sequenceOf(lastEventId);
+        long newest = nextId - 1;
+        long oldestKept = recent.isEmpty() ? nextId : recent.peekFirst().id();
+        if (lastSeen < 0 || lastSeen > newest || lastSeen < oldestKept - 1) {
+            // The client saw ids from before a restart, or missed more than we kept
+            subscriber.offer(RESYNC);
+            return;
+        }
+        for (StreamItem item : recent) {
+            if (item.id() > lastSeen) {
+                subscriber.offer(item);
+            }
+        }
+    }
+
+    // Sequence part of an id from this run, or -1 for ids from another epoch and anything unparseable
+    private long sequenceOf(String eventId) {
+        int dash = eventId.lastIndexOf('-');
+        if (dash < 0 || !eventId.substring(0, dash).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void disconnect(Subscriber subscriber, String reason) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        log.info("Loan stream subscriber disconnected: {}", reason);
+        subscriber.buffer.clear();
+        subscriber.emitter.completeWithError(new IOException(reason));
+        Thread sender = subscriber.sender;
+        if (sender != null) {
+            sender.interrupt();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                LoanChangedEvent event = incoming.take();
+                synchronized (fanOutLock) {
+                    StreamItem item = new StreamItem(nextId++, event.type().name().toLowerCase(), toMessage(event));
+                    recent.addLast(item);
+                    if (recent.size() > replaySize) {
+                        recent.removeFirst();
+                    }
+                    for (Subscriber subscriber : subscribers) {
+                        subscriber.offer(item);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Loan stream dispatch failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        subscriber.sender = Thread.currentThread();
+        try {
+            StreamItem item;
+            while ((item = subscriber.buffer.poll()) != null) {
+                subscriber.sendStartedAt = System.nanoTime();
+                if (item == HEARTBEAT) {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    SseEmitter.SseEventBuilder builder = SseEmitter.event().name(item.name()).data(item.data());
+                    if (item.id() > 0) {
+                        builder.id(epoch + "-" + item.id());
+                    }
+                    subscriber.emitter.send(builder);
+                }
+                subscriber.sendStartedAt = 0;
+                if (item == RESYNC) {
+                    subscriber.resyncPending.set(false);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return;
+        } finally {
+            subscriber.sendStartedAt = 0;
+            subscriber.sender = null;
+            subscriber.draining.set(false);
+        }
+        // An item may have arrived after the last poll but before the flag was cleared
+        if (!subscriber.buffer.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private static LoanEventResponse toMessage(LoanChangedEvent event) {
+        return LoanEventResponse.builder()
+                .loanId(event.loanId())
+                .type(event.type().name())
+                .actor(event.actor())
+                .userId(event.userId())
+                .amount(event.amount())
+                .term(event.term())
+                .purpose(event.purpose())
+                .status(event.status() != null ? event.status().name() : null)
+                .reviewedById(event.reviewedById())
+                .reviewComment(event.reviewComment())
+                .occurredAt(event.occurredAt().format(FORMATTER))
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.exception.ResourceNotFoundException;
+import com.ryanm.loan.exception.ValidationException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileImageService {
+    public static final String URL_PREFIX = "/api/v1/users/images/";
+    // Stored files are never rewritten in place, so clients may cache them indefinitely
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    // Served in place of a thumbnail that is not ready yet; must not stick in caches
+    private static final String FALLBACK_CACHE_CONTROL = "public, max-age=60";
+    private static final Pattern FILENAME = Pattern.compile("[A-Za-z0-9_-]+(\\.[A-Za-z0-9]{1,10})?");
+
+    private final ZeroCopyFileSender fileSender;
+    private final ProfileImageStore profileImageStore;
+
+    // Per-file metadata (size, content hash) so repeat fetches need neither the DB nor re-hashing
+    private final Map<String, ZeroCopyFileSender.StaticFile> metadata = new ConcurrentHashMap<>();
+
+    @Value("${storage.profile-images.metadata-cache-size:10000}")
+    private int metadataCacheSize;
+
+    // Public URL for a stored image path, as kept in User.image
+    public String toUrl(String storedPath) {
+        if (storedPath == null || storedPath.isEmpty()) {
+            return null;
+        }
+        return URL_PREFIX + Paths.get(storedPath).getFileName();
+    }
+
+    // Serves the original, or the thumbnail of the given size once it has been generated
+    public void serve(String filename, Integer size, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (!FILENAME.matcher(filename).matches()) {
+            throw new ResourceNotFoundException("Image", filename);
+        }
+        if (size != null && !profileImageStore.getThumbnailSizes().contains(size)) {
+            throw new ValidationException("Unsupported image size: " + size
+                    + ". Supported sizes: " + profileImageStore.getThumbnailSizes());
+        }
+        String key = size != null ? filename + "@" + size : filename;
+        ZeroCopyFileSender.StaticFile file = metadata.get(key);
+        if (file != null && fileSender.sendIfNotModified(request, response, file, CACHE_CONTROL)) {
+            return;
+        }
+        if (file == null || !Files.isRegularFile(file.path())) {
+            file = size != null ? loadVariant(filename, size) : load(filename);
+        }
+        if (file == null) {
+            fileSender.send(request, response, original(filename), FALLBACK_CACHE_CONTROL);
+            return;
+        }
+        fileSender.send(request, response, file, CACHE_CONTROL);
+    }
+
+    private ZeroCopyFileSender.StaticFile original(String filename) throws IOException {
+        ZeroCopyFileSender.StaticFile file = metadata.get(filename);
+        return file != null && Files.isRegularFile(file.path()) ? file : load(filename);
+    }
+
+    private ZeroCopyFileSender.StaticFile load(String filename) throws IOException {
+        Path path = profileImageStore.resolve(filename);
+        if (!Files.isRegularFile(path)) {
+            metadata.remove(filename);
+            throw new ResourceNotFoundException("Image", filename);
+        }
+        String contentType = MediaTypeFactory.getMediaType(filename)
+                .map(MediaType::toString)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        // Content-addressed names already are the hash; only legacy files need hashing
+        String hash = profileImageStore.isContentAddressed(filename)
+                ? filename.substring(0, 64)
+                : sha256(path);
+        return cache(filename, new ZeroCopyFileSender.StaticFile(
+                path, Files.size(path), "\"" + hash + "\"", contentType));
+    }
+
+    // Returns null while the thumbnail has not been generated yet
+    private ZeroCopyFileSender.StaticFile loadVariant(String filename, int size) throws IOException {
+        Path path = profileImageStore.resolveVariant(filename, size);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        ZeroCopyFileSender.StaticFile original = original(filename);
+        String etag = original.etag().substring(0, original.etag().length() - 1) + "-" + size + "\"";
+        return cache(filename + "@" + size, new ZeroCopyFileSender.StaticFile(
+                path, Files.size(path), etag, MediaType.IMAGE_JPEG_VALUE));
+    }
+
+    private ZeroCopyFileSender.StaticFile cache(String key, ZeroCopyFileSender.StaticFile file) {
+        if (metadata.size() >= metadataCacheSize) {
+            Iterator<String> keys = metadata.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        metadata.put(key, file);
+        return file;
+    }
+
+    private static String sha256(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
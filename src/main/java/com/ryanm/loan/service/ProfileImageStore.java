@@ -0,0 +1,227 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.model.StoredImage;
+import com.ryanm.loan.repository.StoredImageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for profile images. Files are named by the SHA-256 of their content and sharded
+ * two levels deep ({@code ab/cd/abcd...ef.png}), so identical uploads share one file. Every user pointing at a
+ * file holds a reference in {@code stored_images}; files whose count drops to zero are removed by
+ * {@link #collectGarbage()} in batches after a grace period, never on the request thread.
+ *
+ * References are taken in their own short transactions and always before the old image is released, so a
+ * failure in between can only leak a file, never delete one still in use. Releases join the caller's
+ * transaction, so a rolled-back account or image change keeps its reference.
+ */
+@Slf4j
+@Service
+public class ProfileImageStore {
+    private static final Pattern CONTENT_NAME = Pattern.compile("[0-9a-f]{64}(\\.[A-Za-z0-9]{1,10})?");
+
+    private final StoredImageRepository storedImageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate releaseTemplate;
+
+    @Value("${storage.profile-images.dir:uploads/profile-images}")
+    private String directory;
+
+    @Value("${storage.profile-images.thumbnail-sizes:48,128,256}")
+    private List<Integer> thumbnailSizes;
+
+    @Value("${storage.profile-images.gc-grace-minutes:10}")
+    private long gcGraceMinutes;
+
+    @Value("${storage.profile-images.gc-batch-size:500}")
+    private int gcBatchSize;
+
+    public ProfileImageStore(StoredImageRepository storedImageRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.storedImageRepository = storedImageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.releaseTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public Path getDirectory() {
+        return Paths.get(directory);
+    }
+
+    // Stores the upload (or reuses an identical file) and returns the path to keep in User.image
+    public String store(MultipartFile file) throws IOException {
+        Path root = getDirectory();
+        Path tmpDir = root.resolve("tmp");
+        Files.createDirectories(tmpDir);
+        Path temp = tmpDir.resolve(UUID.randomUUID() + ".upload");
+        try {
+            String hash = writeAndHash(file, temp);
+            String filename = hash + extensionOf(file.getOriginalFilename());
+            Path target = resolve(filename);
+            String path = target.toString();
+            // The reference is taken before the file is moved into place, so the garbage collector (which
+            // locks orphaned rows) cannot remove the file underneath us
+            addReference(filename, path);
+            Files.createDirectories(target.getParent());
+            moveAtomically(temp, target);
+            return path;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Drops one reference to a stored path as part of the caller's transaction, if any; the file is removed
+    // later by the garbage collector
+    public void release(String storedPath) {
+        if (storedPath == null || storedPath.isEmpty()) {
+            return;
+        }
+        String filename = Paths.get(storedPath).getFileName().toString();
+        LocalDateTime now = LocalDateTime.now();
+        releaseTemplate.executeWithoutResult(status -> {
+            if (storedImageRepository.decrementRefCount(filename, now) == 0
+                    && !storedImageRepository.existsById(filename)) {
+                // Legacy upload from before content addressing: queue it for collection
+                storedImageRepository.save(StoredImage.builder()
+                        .filename(filename)
+                        .path(storedPath)
+                        .refCount(0)
+                        .orphanedAt(now)
+                        .build());
+            }
+        });
+    }
+
+    public boolean isContentAddressed(String filename) {
+        return CONTENT_NAME.matcher(filename).matches();
+    }
+
+    // Maps a public filename to its location on disk
+    public Path resolve(String filename) {
+        Path root = getDirectory();
+        if (!isContentAddressed(filename)) {
+            return root.resolve(filename);
+        }
+        return root.resolve(filename.substring(0, 2)).resolve(filename.substring(2, 4)).resolve(filename);
+    }
+
+    public List<Integer> getThumbnailSizes() {
+        return thumbnailSizes;
+    }
+
+    // Thumbnails live next to the original: ab/cd/<hash>_48.jpg
+    public Path resolveVariant(String filename, int size) {
+        int dot = filename.lastIndexOf('.');
+        String stem = dot > 0 ? filename.substring(0, dot) : filename;
+        return resolve(filename).resolveSibling(stem + "_" + size + ".jpg");
+    }
+
+    @Scheduled(fixedDelayString = "${storage.profile-images.gc-interval-ms:60000}")
+    public void collectGarbage() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(gcGraceMinutes);
+        int total = 0;
+        Integer removed;
+        do {
+            removed = transactionTemplate.execute(status -> {
+                List<StoredImage> orphans = storedImageRepository.findOrphansForUpdate(
+                        cutoff, PageRequest.of(0, gcBatchSize));
+                for (StoredImage orphan : orphans) {
+                    deleteFiles(orphan);
+                }
+                storedImageRepository.deleteAllInBatch(orphans);
+                return orphans.size();
+            });
+            total += removed != null ? removed : 0;
+        } while (removed != null && removed == gcBatchSize);
+        if (total > 0) {
+            log.info("Profile image garbage collection removed {} files", total);
+        }
+    }
+
+    private void deleteFiles(StoredImage image) {
+        Path path = Paths.get(image.getPath());
+        try {
+            Files.deleteIfExists(path);
+            for (int size : thumbnailSizes) {
+                Files.deleteIfExists(resolveVariant(image.getFilename(), size));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete orphaned image {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void addReference(String filename, String path) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertOrIncrement(filename, path));
+        } catch (DataIntegrityViolationException e) {
+            // Another upload of the same content inserted the row first; count ours against it
+            transactionTemplate.executeWithoutResult(status -> insertOrIncrement(filename, path));
+        }
+    }
+
+    private void insertOrIncrement(String filename, String path) {
+        if (storedImageRepository.incrementRefCount(filename) == 0) {
+            storedImageRepository.saveAndFlush(StoredImage.builder()
+                    .filename(filename)
+                    .path(path)
+                    .refCount(1)
+                    .build());
+        }
+    }
+
+    private static String writeAndHash(MultipartFile file, Path temp) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = file.getInputStream();
+             OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+            in.transferTo(out);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            return "";
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+        return extension.matches("\\.[a-z0-9]{1,10}") ? extension : "";
+    }
+}
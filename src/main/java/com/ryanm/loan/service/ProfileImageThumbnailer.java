@@ -0,0 +1,191 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.event.ProfileImageStoredEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates square JPEG thumbnails for stored profile images on a bounded worker pool. Work is queued once the
+ * upload has committed; when the queue is full the upload is simply left without variants and clients keep
+ * getting the original, which {@link ProfileImageService} serves as the fallback. The pixel dimensions are read
+ * from the image header before anything is decoded, so a small file that expands to a huge bitmap is skipped
+ * instead of exhausting the heap.
+ */
+@Slf4j
+@Service
+public class ProfileImageThumbnailer {
+    private final ProfileImageStore profileImageStore;
+    private final ThreadPoolExecutor executor;
+    private final Timer processingTimer;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+
+    @Value("${storage.profile-images.thumbnail-quality:0.8}")
+    private float quality;
+
+    @Value("${storage.profile-images.max-megapixels:40}")
+    private long maxMegapixels;
+
+    public ProfileImageThumbnailer(ProfileImageStore profileImageStore,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${storage.profile-images.thumbnail-workers:2}") int workers,
+                                   @Value("${storage.profile-images.thumbnail-queue-capacity:1000}") int capacity) {
+        this.profileImageStore = profileImageStore;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnailer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("profile_images.thumbnail.queue.depth", executor, e -> e.getQueue().size())
+                .description("Profile images waiting for thumbnail generation")
+                .register(meterRegistry);
+        this.processingTimer = Timer.builder("profile_images.thumbnail.duration")
+                .description("Time to decode an image and write all its thumbnails")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("profile_images.thumbnail.rejected")
+                .description("Images skipped because the thumbnail queue was full")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("profile_images.thumbnail.failed")
+                .description("Images that could not be decoded or written")
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImageStored(ProfileImageStoredEvent event) {
+        try {
+            executor.execute(() -> processingTimer.record(() -> generate(event.filename(), event.path())));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Thumbnail queue full, serving original for {}", event.filename());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void generate(String filename, Path original) {
+        List<Integer> sizes = profileImageStore.getThumbnailSizes().stream()
+                .filter(size -> !Files.exists(profileImageStore.resolveVariant(filename, size)))
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        if (sizes.isEmpty()) {
+            return; // identical content was processed before
+        }
+        try {
+            BufferedImage source = decodeSquare(filename, original);
+            if (source == null) {
+                failedCounter.increment();
+                return;
+            }
+            // Decode once; each size is scaled down from the previous (larger) one
+            for (int size : sizes) {
+                source = scale(source, Math.min(size, source.getWidth()));
+                write(source, profileImageStore.resolveVariant(filename, size));
+            }
+        } catch (IOException | RuntimeException e) {
+            failedCounter.increment();
+            log.warn("Failed to generate thumbnails for {}: {}", filename, e.getMessage());
+        }
+    }
+
+    // Decodes only the centred square, after checking the header dimensions; null when the image is not usable
+    private BufferedImage decodeSquare(String filename, Path original) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                log.debug("No decoder for {}, skipping thumbnails", filename);
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxMegapixels * 1_000_000) {
+                    log.warn("Image {} is {}x{} pixels, over the {} megapixel limit; skipping thumbnails",
+                            filename, width, height, maxMegapixels);
+                    return null;
+                }
+                int side = Math.min(width, height);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle((width - side) / 2, (height - side) / 2, side, side));
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int size) {
+        // JPEG has no alpha channel, so flatten onto white
+        BufferedImage target = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, size, size);
+            graphics.drawImage(source, 0, 0, size, size, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, Path target) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+            ImageWriteParam params = writer.getDefaultWriteParam();
+            params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            params.setCompressionQuality(quality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), params);
+        } finally {
+            writer.dispose();
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.dto.RiskSimulationRequest;
+import com.ryanm.loan.dto.RiskSimulationResponse;
+import com.ryanm.loan.exception.BusinessException;
+import com.ryanm.loan.exception.ResourceNotFoundException;
+import com.ryanm.loan.exception.ValidationException;
+import com.ryanm.loan.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monte Carlo estimate of credit loss on the ACCEPTED book, using a one-factor Gaussian copula: each scenario
+ * draws one systemic factor shared by all loans plus an idiosyncratic draw per loan, and a loan defaults when
+ * the combination falls below the threshold implied by its probability of default. Default probability grows
+ * with the borrower's annual repayment burden (amount / term against income); loss given default is drawn
+ * around a configured mean.
+ *
+ * <p>Scenarios are split across a fork-join pool. Every task splits its {@link SplittableRandom} before
+ * forking, so a given seed yields the same losses regardless of thread count. Runs are asynchronous jobs and
+ * results are reused for the same portfolio version, scenario count and seed. Only a few jobs may wait or run
+ * at once, the size of a run (scenarios times loans) is capped, and a job can be cancelled until it finishes.
+ */
+@Slf4j
+@Service
+public class RiskSimulationService {
+    private static final int LOOKUP_CHUNK = 1000;
+    // Aim for roughly this many loan draws per leaf task
+    private static final long LEAF_WORK = 1L << 18;
+
+    private enum JobStatus {RUNNING, COMPLETED, FAILED, CANCELLED}
+
+    private record SimulationKey(long portfolioVersion, int scenarios, long seed) {
+    }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final SimulationKey key;
+        final AtomicLong completed = new AtomicLong();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        volatile JobStatus status = JobStatus.RUNNING;
+        volatile RiskSimulationResponse result;
+        volatile String error;
+
+        Job(SimulationKey key) {
+            this.key = key;
+        }
+    }
+
+    private final PortfolioSnapshot portfolioSnapshot;
+    private final UserRepository userRepository;
+    private final ForkJoinPool pool;
+    private final ExecutorService coordinator;
+    // Most recent jobs by id, oldest first; also serves as the result cache
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+
+    @Value("${risk.simulation.default-scenarios:10000}")
+    private int defaultScenarios;
+
+    @Value("${risk.simulation.max-scenarios:1000000}")
+    private int maxScenarios;
+
+    @Value("${risk.simulation.default-seed:42}")
+    private long defaultSeed;
+
+    @Value("${risk.simulation.max-jobs:20}")
+    private int maxJobs;
+
+    // Jobs waiting for or holding the single coordinator thread
+    @Value("${risk.simulation.max-active-jobs:4}")
+    private int maxActiveJobs;
+
+    // Loan draws per run; each one is a few Gaussian samples
+    @Value("${risk.simulation.max-loan-scenarios:2000000000}")
+    private long maxLoanScenarios;
+
+    @Value("${risk.simulation.base-annual-pd:0.02}")
+    private double baseAnnualPd;
+
+    @Value("${risk.simulation.pd-per-burden:0.10}")
+    private double pdPerBurden;
+
+    @Value("${risk.simulation.max-annual-pd:0.5}")
+    private double maxAnnualPd;
+
+    @Value("${risk.simulation.asset-correlation:0.15}")
+    private double assetCorrelation;
+
+    @Value("${risk.simulation.mean-lgd:0.45}")
+    private double meanLgd;
+
+    @Value("${risk.simulation.lgd-volatility:0.2}")
+    private double lgdVolatility;
+
+    public RiskSimulationService(PortfolioSnapshot portfolioSnapshot,
+                                 UserRepository userRepository,
+                                 @Value("${risk.simulation.parallelism:0}") int parallelism) {
+        this.portfolioSnapshot = portfolioSnapshot;
+        this.userRepository = userRepository;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.coordinator = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "risk-simulation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    public RiskSimulationResponse start(RiskSimulationRequest request) {
+        int scenarios = request.getScenarios() != null ? request.getScenarios() : defaultScenarios;
+        if (scenarios > maxScenarios) {
+            throw new ValidationException("At most " + maxScenarios + " scenarios can be simulated");
+        }
+        long seed = request.getSeed() != null ? request.getSeed() : defaultSeed;
+        PortfolioSnapshot.AcceptedBook book = portfolioSnapshot.acceptedBook();
+        long loans = book.amountCents().length;
+        if (loans * scenarios > maxLoanScenarios) {
+            throw new ValidationException("At most " + maxLoanScenarios / Math.max(1, loans) + " scenarios can be "
+                    + "simulated over the current " + loans + " loans");
+        }
+        SimulationKey key = new SimulationKey(book.version(), scenarios, seed);
+        Job job;
+        synchronized (jobs) {
+            int active = 0;
+            for (Job existing : jobs.values()) {
+                if (existing.key.equals(key)
+                        && (existing.status == JobStatus.RUNNING || existing.status == JobStatus.COMPLETED)) {
+                    log.debug("Reusing simulation {} for portfolio version {}", existing.id, key.portfolioVersion());
+                    return toResponse(existing);
+                }
+                if (existing.status == JobStatus.RUNNING) {
+                    active++;
+                }
+            }
+            if (active >= maxActiveJobs) {
+                throw new BusinessException("Too many simulations are queued or running (" + active
+                        + "); wait for one to finish or cancel it.");
+            }
+            job = new Job(key);
+            jobs.put(job.id, job);
+            evictFinished();
+        }
+        Job started = job;
+        coordinator.execute(() -> run(started, book));
+        return toResponse(job);
+    }
+
+    public RiskSimulationResponse getJob(String id) {
+        Job job;
+        synchronized (jobs) {
+            job = jobs.get(id);
+        }
+        if (job == null) {
+            throw new ResourceNotFoundException("Simulation", id);
+        }
+        return toResponse(job);
+    }
+
+    // Stops a job that has not finished; its workers notice before their next scenario
+    public RiskSimulationResponse cancel(String id) {
+        Job job;
+        synchronized (jobs) {
+            job = jobs.get(id);
+            if (job == null) {
+                throw new ResourceNotFoundException("Simulation", id);
+            }
+            if (job.status != JobStatus.RUNNING) {
+                throw new BusinessException("Simulation " + id + " has already finished (" + job.status + ").");
+            }
+            job.cancelled.set(true);
+            job.status = JobStatus.CANCELLED;
+        }
+        log.info("Risk simulation {} cancelled", id);
+        return toResponse(job);
+    }
+
+    private void run(Job job, PortfolioSnapshot.AcceptedBook book) {
+        if (job.cancelled.get()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            LossModel model = buildModel(book);
+            int scenarios = job.key.scenarios();
+            double[] losses = new double[scenarios];
+            int leafScenarios = (int) Math.max(1, Math.min(1024, LEAF_WORK / Math.max(1, model.size())));
+            pool.invoke(new ScenarioTask(model, losses, 0, scenarios, leafScenarios,
+                    new SplittableRandom(job.key.seed()), job.completed, job.cancelled));
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            RiskSimulationResponse result = summarize(model, losses, elapsedMs);
+            // Under the jobs lock so a cancel either wins outright or finds the job finished
+            synchronized (jobs) {
+                if (job.cancelled.get()) {
+                    return;
+                }
+                job.result = result;
+                job.status = JobStatus.COMPLETED;
+            }
+            log.info("Risk simulation {}: {} scenarios over {} loans in {} ms on {} threads",
+                    job.id, scenarios, model.size(), elapsedMs, pool.getParallelism());
+        } catch (RuntimeException e) {
+            synchronized (jobs) {
+                if (job.cancelled.get()) {
+                    return;
+                }
+                job.error = e.getMessage();
+                job.status = JobStatus.FAILED;
+            }
+            log.error("Risk simulation {} failed: {}", job.id, e.getMessage(), e);
+        }
+    }
+
+    private LossModel buildModel(PortfolioSnapshot.AcceptedBook book) {
+        Map<Long, BigDecimal> incomes = loadIncomes(book.userIds());
+        int n = book.amountCents().length;
+        double[] exposure = new double[n];
+        double[] threshold = new double[n];
+        for (int i = 0; i < n; i++) {
+            double amount = book.amountCents()[i] / 100.0;
+            double termYears = Math.max(1, book.terms()[i]) / 12.0;
+            BigDecimal income = incomes.get(book.userIds()[i]);
+            // Unknown or zero income is treated as fully burdened
+            double burden = income != null && income.signum() > 0
+                    ? (amount / termYears) / income.doubleValue()
+                    : 1.0;
+            double annualPd = Math.min(maxAnnualPd, baseAnnualPd + pdPerBurden * burden);
+            double horizonPd = 1 - Math.pow(1 - annualPd, termYears);
+            exposure[i] = amount;
+            threshold[i] = inverseNormal(Math.min(1 - 1e-9, Math.max(1e-9, horizonPd)));
+        }
+        return new LossModel(exposure, threshold, Math.sqrt(assetCorrelation), Math.sqrt(1 - assetCorrelation),
+                meanLgd, lgdVolatility);
+    }
+
+    private Map<Long, BigDecimal> loadIncomes(long[] userIds) {
+        List<Long> distinct = Arrays.stream(userIds).distinct().boxed().toList();
+        Map<Long, BigDecimal> incomes = new HashMap<>(distinct.size() * 2);
+        for (int from = 0; from < distinct.size(); from += LOOKUP_CHUNK) {
+            for (Object[] row : userRepository.findIncomes(
+                    distinct.subList(from, Math.min(distinct.size(), from + LOOKUP_CHUNK)))) {
+                incomes.put((Long) row[0], (BigDecimal) row[1]);
+            }
+        }
+        return incomes;
+    }
+
+    private RiskSimulationResponse summarize(LossModel model, double[] losses, long elapsedMs) {
+        int n = losses.length;
+        double sum = 0;
+        double sumSquares = 0;
+        for (double loss : losses) {
+            sum += loss;
+            sumSquares += loss * loss;
+        }
+        double mean = sum / n;
+        double variance = Math.max(0, sumSquares / n - mean * mean);
+        double[] sorted = losses.clone();
+        Arrays.sort(sorted);
+        int tailStart = Math.min(n - 1, (int) Math.ceil(0.99 * n) - 1);
+        double tailSum = 0;
+        for (int i = tailStart; i < n; i++) {
+            tailSum += sorted[i];
+        }
+        double totalExposure = 0;
+        for (double amount : model.exposure()) {
+            totalExposure += amount;
+        }
+        return RiskSimulationResponse.builder()
+                .loans(model.size())
+                .totalExposure(money(totalExposure))
+                .expectedLoss(money(mean))
+                .lossStandardDeviation(money(Math.sqrt(variance)))
+                .valueAtRisk95(money(sorted[Math.min(n - 1, (int) Math.ceil(0.95 * n) - 1)]))
+                .valueAtRisk99(money(sorted[tailStart]))
+                .expectedShortfall99(money(tailSum / (n - tailStart)))
+                .parallelism(pool.getParallelism())
+                .elapsedMs(elapsedMs)
+                .build();
+    }
+
+    private RiskSimulationResponse toResponse(Job job) {
+        RiskSimulationResponse result = job.result;
+        RiskSimulationResponse.RiskSimulationResponseBuilder builder = result != null
+                ? result.toBuilder()
+                : RiskSimulationResponse.builder();
+        long completed = job.completed.get();
+        return builder
+                .id(job.id)
+                .status(job.status.name())
+                .portfolioVersion(job.key.portfolioVersion())
+                .scenarios(job.key.scenarios())
+                .completedScenarios(completed)
+                .progress((double) completed / job.key.scenarios())
+                .error(job.error)
+                .build();
+    }
+
+    // Caller holds the jobs lock; running jobs are never dropped
+    private void evictFinished() {
+        Iterator<Job> iterator = jobs.values().iterator();
+        while (jobs.size() > maxJobs && iterator.hasNext()) {
+            if (iterator.next().status != JobStatus.RUNNING) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private record LossModel(double[] exposure, double[] threshold, double systemicWeight, double idiosyncraticWeight,
+                             double meanLgd, double lgdVolatility) {
+        int size() {
+            return exposure.length;
+        }
+
+        // Portfolio loss for one scenario; no allocation in the loop
+        double scenarioLoss(SplittableRandom random) {
+            double systemic = systemicWeight * random.nextGaussian();
+            double loss = 0;
+            for (int i = 0; i < exposure.length; i++) {
+                double asset = systemic + idiosyncraticWeight * random.nextGaussian();
+                if (asset < threshold[i]) {
+                    double lgd = meanLgd + lgdVolatility * random.nextGaussian();
+                    loss += exposure[i] * Math.min(1.0, Math.max(0.0, lgd));
+                }
+            }
+            return loss;
+        }
+    }
+
+    private static final class ScenarioTask extends RecursiveAction {
+        private final LossModel model;
+        private final double[] losses;
+        private final int from;
+        private final int to;
+        private final int leafScenarios;
+        private final SplittableRandom random;
+        private final AtomicLong completed;
+        private final AtomicBoolean cancelled;
+
+        ScenarioTask(LossModel model, double[] losses, int from, int to, int leafScenarios,
+                     SplittableRandom random, AtomicLong completed, AtomicBoolean cancelled) {
+            this.model = model;
+            this.losses = losses;
+            this.from = from;
+            this.to = to;
+            this.leafScenarios = leafScenarios;
+            this.random = random;
+            this.completed = completed;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.get()) {
+                return;
+            }
+            if (to - from <= leafScenarios) {
+                for (int scenario = from; scenario < to; scenario++) {
+                    if (cancelled.get()) {
+                        return;
+                    }
+                    losses[scenario] = model.scenarioLoss(random);
+                }
+                completed.addAndGet(to - from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            // Split before forking so the stream each half gets does not depend on scheduling
+            SplittableRandom right = random.split();
+            invokeAll(new ScenarioTask(model, losses, from, mid, leafScenarios, random, completed, cancelled),
+                    new ScenarioTask(model, losses, mid, to, leafScenarios, right, completed, cancelled));
+        }
+    }
+
+    private static final double[] A = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+    private static final double[] B = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+    private static final double[] C = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+    private static final double[] D = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+
+    // Inverse standard normal CDF (Acklam's rational approximation, relative error below 1.2e-9)
+    private static double inverseNormal(double p) {
+        if (p < 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5])
+                    / ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1);
+        }
+        if (p <= 1 - 0.02425) {
+            double q = p - 0.5;
+            double r = q * q;
+            return (((((A[0] * r + A[1]) * r + A[2]) * r + A[3]) * r + A[4]) * r + A[5]) * q
+                    / (((((B[0] * r + B[1]) * r + B[2]) * r + B[3]) * r + B[4]) * r + 1);
+        }
+        double q = Math.sqrt(-2 * Math.log(1 - p));
+        return -(((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5])
+                / ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1);
+    }
+}
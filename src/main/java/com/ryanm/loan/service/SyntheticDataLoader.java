@@ -0,0 +1,263 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.model.Role;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk loads synthetic users and loans for scale testing. Only active with the "seed" profile:
+ *
+ * <pre>
+ * ./mvnw spring-boot:run -Dspring-boot.run.profiles=seed -Dspring-boot.run.arguments="--seed.loans=10000000"
+ * </pre>
+ *
+ * Rows are written with batched JDBC straight into the schema, bypassing the API. Every chunk draws from its
+ * own {@link SplittableRandom} derived from the seed and the chunk index, so the same seed produces the same
+ * data regardless of the number of threads. All synthetic users share one precomputed password hash.
+ */
+@Slf4j
+@Service
+@Profile("seed")
+@RequiredArgsConstructor
+public class SyntheticDataLoader implements ApplicationRunner {
+    private static final String EMAIL_PREFIX = "synthetic-";
+    private static final String EMAIL_DOMAIN = "@example.test";
+    private static final int[] TERMS = {6, 12, 18, 24, 36, 48, 60};
+    private static final int[] TERM_WEIGHTS = {8, 25, 10, 25, 18, 8, 6};
+    private static final String[] PURPOSES = {
+            "Home improvement", "Debt consolidation", "Car purchase", "Education", "Medical expenses",
+            "Business expansion", "Wedding", "Travel", "Emergency", "Equipment purchase"
+    };
+    private static final String INSERT_USER = "INSERT INTO users (name, email, password, phone, income, role, "
+            + "created_at, deleted, deleted_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_LOAN = "INSERT INTO loans (amount, term, purpose, status, user_id, "
+            + "reviewed_by, review_comment, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final ApplicationContext applicationContext;
+
+    @Value("${seed.users:100000}")
+    private int userCount;
+
+    @Value("${seed.loans:1000000}")
+    private long loanCount;
+
+    @Value("${seed.random-seed:42}")
+    private long randomSeed;
+
+    @Value("${seed.threads:4}")
+    private int threads;
+
+    @Value("${seed.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${seed.manager-ratio:0.01}")
+    private double managerRatio;
+
+    @Value("${seed.deleted-ratio:0.03}")
+    private double deletedRatio;
+
+    @Value("${seed.password:Synthetic#2024}")
+    private String password;
+
+    @Value("${seed.exit-when-done:true}")
+    private boolean exitWhenDone;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE email LIKE ?", Integer.class, EMAIL_PREFIX + "%");
+        if (existing != null && existing > 0) {
+            log.warn("Synthetic data already present ({} users), skipping load", existing);
+        } else {
+            load();
+        }
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+
+    private void load() throws Exception {
+        log.info("Loading {} synthetic users and {} loans (seed={}, threads={}, batchSize={})",
+                userCount, loanCount, randomSeed, threads, batchSize);
+        // Hash once, every synthetic user shares it
+        String passwordHash = passwordEncoder.encode(password);
+        LocalDateTime now = LocalDateTime.now();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long started = System.nanoTime();
+            int userChunks = (userCount + batchSize - 1) / batchSize;
+            runChunks(executor, userChunks, chunk -> insertUsers(chunk, passwordHash, now));
+            log.info("Inserted {} users in {} ms", userCount, (System.nanoTime() - started) / 1_000_000);
+
+            UserIndex index = loadUserIndex();
+            if (index.customerIds().length == 0 || index.managerIds().length == 0) {
+                log.warn("Not enough customers or managers to generate loans");
+                return;
+            }
+
+            started = System.nanoTime();
+            long loanChunks = (loanCount + batchSize - 1) / batchSize;
+            AtomicLong written = new AtomicLong();
+            runChunks(executor, loanChunks, chunk -> {
+                long rows = insertLoans(chunk, index, now);
+                long total = written.addAndGet(rows);
+                if (chunk % 100 == 0) {
+                    log.info("Loans inserted: {}/{}", total, loanCount);
+                }
+            });
+            long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+            log.info("Inserted {} loans in {} ms ({} rows/s)", written.get(), elapsedMs,
+                    written.get() * 1000 / elapsedMs);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void runChunks(ExecutorService executor, long chunks, ChunkTask task) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (long chunk = 0; chunk < chunks; chunk++) {
+            long current = chunk;
+            futures.add(executor.submit(() -> task.run(current)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private void insertUsers(long chunk, String passwordHash, LocalDateTime now) {
+        SplittableRandom random = randomFor(0x5EED_0001L, chunk);
+        int from = (int) (chunk * batchSize);
+        int to = Math.min(userCount, from + batchSize);
+        List<Object[]> rows = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            Role role = random.nextDouble() < managerRatio ? Role.MANAGER : Role.CUSTOMER;
+            LocalDateTime createdAt = now.minusMinutes(random.nextLong(3L * 365 * 24 * 60));
+            boolean deleted = role == Role.CUSTOMER && random.nextDouble() < deletedRatio;
+            rows.add(new Object[]{
+                    "Synthetic User " + i,
+                    EMAIL_PREFIX + i + EMAIL_DOMAIN,
+                    passwordHash,
+                    String.format("+2547%08d", i % 100_000_000),
+                    logNormal(random, 45_000, 0.6, 0).setScale(2, RoundingMode.HALF_UP),
+                    role.name(),
+                    Timestamp.valueOf(createdAt),
+                    deleted,
+                    deleted ? Timestamp.valueOf(createdAt.plusDays(random.nextInt(1, 365))) : null
+            });
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_USER, rows));
+    }
+
+    private long insertLoans(long chunk, UserIndex index, LocalDateTime now) {
+        SplittableRandom random = randomFor(0x5EED_0002L, chunk);
+        long from = chunk * batchSize;
+        long to = Math.min(loanCount, from + batchSize);
+        List<Object[]> rows = new ArrayList<>((int) (to - from));
+        for (long i = from; i < to; i++) {
+            long userId = index.customerIds()[random.nextInt(index.customerIds().length)];
+            LocalDateTime createdAt = now.minusMinutes(random.nextLong(3L * 365 * 24 * 60));
+            double roll = random.nextDouble();
+            Loan.Status status = roll < 0.2 ? Loan.Status.PENDING
+                    : roll < 0.8 ? Loan.Status.ACCEPTED : Loan.Status.REJECTED;
+            boolean reviewed = status != Loan.Status.PENDING;
+            rows.add(new Object[]{
+                    logNormal(random, 5_000, 0.9, 50),
+                    pickTerm(random),
+                    PURPOSES[random.nextInt(PURPOSES.length)],
+                    status.name(),
+                    userId,
+                    reviewed ? index.managerIds()[random.nextInt(index.managerIds().length)] : null,
+                    reviewed ? "Synthetic review" : null,
+                    Timestamp.valueOf(createdAt),
+                    reviewed ? Timestamp.valueOf(createdAt.plusHours(random.nextInt(1, 24 * 14))) : null
+            });
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_LOAN, rows));
+        return rows.size();
+    }
+
+    // Ids are assigned by the database in arrival order, so map them back by the index encoded in the email
+    private UserIndex loadUserIndex() {
+        long[] ids = new long[userCount];
+        boolean[] managers = new boolean[userCount];
+        jdbcTemplate.query("SELECT id, email, role FROM users WHERE email LIKE ?", rs -> {
+            String email = rs.getString(2);
+            int i = Integer.parseInt(email.substring(EMAIL_PREFIX.length(), email.length() - EMAIL_DOMAIN.length()));
+            if (i < userCount) {
+                ids[i] = rs.getLong(1);
+                managers[i] = Role.MANAGER.name().equals(rs.getString(3));
+            }
+        }, EMAIL_PREFIX + "%");
+        int managerCount = 0;
+        for (boolean manager : managers) {
+            if (manager) managerCount++;
+        }
+        long[] managerIds = new long[managerCount];
+        long[] customerIds = new long[userCount - managerCount];
+        int m = 0;
+        int c = 0;
+        for (int i = 0; i < userCount; i++) {
+            if (managers[i]) managerIds[m++] = ids[i];
+            else customerIds[c++] = ids[i];
+        }
+        return new UserIndex(customerIds, managerIds);
+    }
+
+    private SplittableRandom randomFor(long stream, long chunk) {
+        return new SplittableRandom(randomSeed ^ (stream * 0x9E3779B97F4A7C15L) ^ (chunk * 0xBF58476D1CE4E5B9L));
+    }
+
+    // Log-normal value around the given median, rounded down to a multiple of step (when step > 0)
+    private static BigDecimal logNormal(SplittableRandom random, double median, double sigma, int step) {
+        double value = median * Math.exp(sigma * random.nextGaussian());
+        if (step > 0) {
+            value = Math.max(100, Math.floor(value / step) * step);
+        }
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static int pickTerm(SplittableRandom random) {
+        int roll = random.nextInt(100);
+        for (int i = 0; i < TERMS.length; i++) {
+            roll -= TERM_WEIGHTS[i];
+            if (roll < 0) {
+                return TERMS[i];
+            }
+        }
+        return TERMS[TERMS.length - 1];
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(long chunk);
+    }
+
+    private record UserIndex(long[] customerIds, long[] managerIds) {
+    }
+}
@@ -0,0 +1,229 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.dto.BulkUserRegistrationResponse;
+import com.ryanm.loan.dto.BulkUserResult;
+import com.ryanm.loan.dto.UserRegistrationRequest;
+import com.ryanm.loan.exception.ValidationException;
+import com.ryanm.loan.model.Role;
+import com.ryanm.loan.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Registers many users at once for corporate onboarding. Duplicates are found with one set-based lookup,
+ * passwords are hashed in parallel on a dedicated pool (bcrypt dominates the cost), and rows are inserted in
+ * JDBC batches. Unlike {@link UserService#register} no tokens are issued; each row gets its own result.
+ */
+@Slf4j
+@Service
+public class UserOnboardingService {
+    private static final String INSERT_USER = "INSERT INTO users (name, email, password, phone, income, role, "
+            + "created_at, deleted) VALUES (?, ?, ?, ?, ?, ?, ?, FALSE)";
+    // Keeps IN lists well below database limits
+    private static final int LOOKUP_CHUNK = 1000;
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    // Separate from the common pool so a large import cannot starve parallel streams elsewhere
+    private final ForkJoinPool hashingPool;
+
+    @Value("${bulk-onboarding.max-rows:10000}")
+    private int maxRows;
+
+    @Value("${bulk-onboarding.batch-size:500}")
+    private int batchSize;
+
+    public UserOnboardingService(UserRepository userRepository,
+                                 PasswordEncoder passwordEncoder,
+                                 JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 Validator validator,
+                                 @Value("${bulk-onboarding.hashing-threads:0}") int hashingThreads) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.hashingPool = new ForkJoinPool(hashingThreads > 0
+                ? hashingThreads
+                : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdownNow();
+    }
+
+    private record Row(int index, UserRegistrationRequest request, Role role) {
+    }
+
+    public BulkUserRegistrationResponse registerAll(List<UserRegistrationRequest> requests) {
+        if (requests.size() > maxRows) {
+            throw new ValidationException("At most " + maxRows + " users can be registered per request");
+        }
+        long start = System.nanoTime();
+        BulkUserResult[] results = new BulkUserResult[requests.size()];
+        List<Row> rows = validate(requests, results);
+        rows = rejectExisting(rows, results);
+
+        List<Object[]> hashed = hash(rows);
+        insert(rows, hashed, results);
+
+        int created = 0;
+        for (BulkUserResult result : results) {
+            if ("CREATED".equals(result.getStatus())) {
+                created++;
+            }
+        }
+        log.info("Bulk onboarding: {} of {} users created in {} ms", created, requests.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return BulkUserRegistrationResponse.builder()
+                .created(created)
+                .failed(requests.size() - created)
+                .results(List.of(results))
+                .build();
+    }
+
+    // Bean validation, role parsing and duplicates within the file itself
+    private List<Row> validate(List<UserRegistrationRequest> requests, BulkUserResult[] results) {
+        List<Row> rows = new ArrayList<>(requests.size());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            UserRegistrationRequest request = requests.get(i);
+            if (request == null) {
+                results[i] = failed(i, null, "Row is empty");
+                continue;
+            }
+            Set<ConstraintViolation<UserRegistrationRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                results[i] = failed(i, request.getEmail(), violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                continue;
+            }
+            Role role;
+            try {
+                role = request.getRole() != null ? Role.valueOf(request.getRole().toUpperCase()) : Role.CUSTOMER;
+            } catch (IllegalArgumentException e) {
+                results[i] = failed(i, request.getEmail(), "Invalid role: " + request.getRole());
+                continue;
+            }
+            if (!seen.add(request.getEmail())) {
+                results[i] = failed(i, request.getEmail(), "Email appears more than once in this request");
+                continue;
+            }
+            rows.add(new Row(i, request, role));
+        }
+        return rows;
+    }
+
+    private List<Row> rejectExisting(List<Row> rows, BulkUserResult[] results) {
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += LOOKUP_CHUNK) {
+            List<String> emails = rows.subList(from, Math.min(rows.size(), from + LOOKUP_CHUNK)).stream()
+                    .map(row -> row.request().getEmail())
+                    .toList();
+            existing.addAll(userRepository.findExistingEmails(emails));
+        }
+        if (existing.isEmpty()) {
+            return rows;
+        }
+        List<Row> remaining = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            if (existing.contains(row.request().getEmail())) {
+                results[row.index()] = failed(row.index(), row.request().getEmail(), "Email already in use");
+            } else {
+                remaining.add(row);
+            }
+        }
+        return remaining;
+    }
+
+    private List<Object[]> hash(List<Row> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            return hashingPool.submit(() -> rows.parallelStream()
+                    .map(row -> new Object[]{
+                            row.request().getName(),
+                            row.request().getEmail(),
+                            passwordEncoder.encode(row.request().getPassword()),
+                            row.request().getPhone(),
+                            row.request().getIncome(),
+                            row.role().name(),
+                            now
+                    })
+                    .toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValidationException("Bulk registration interrupted");
+        } catch (ExecutionException e) {
+            log.error("Password hashing failed during bulk registration: {}", e.getMessage(), e);
+            throw new ValidationException("Bulk registration failed");
+        }
+    }
+
+    private void insert(List<Row> rows, List<Object[]> hashed, BulkUserResult[] results) {
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            int to = Math.min(rows.size(), from + batchSize);
+            List<Object[]> batch = hashed.subList(from, to);
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_USER, batch));
+                for (Row row : rows.subList(from, to)) {
+                    results[row.index()] = created(row);
+                }
+            } catch (DataIntegrityViolationException e) {
+                // Someone registered one of these emails since the lookup; fall back to row by row for this batch
+                log.warn("Bulk insert batch conflicted, retrying {} rows individually", batch.size());
+                for (int i = from; i < to; i++) {
+                    Row row = rows.get(i);
+                    Object[] values = hashed.get(i);
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(INSERT_USER, values));
+                        results[row.index()] = created(row);
+                    } catch (DataIntegrityViolationException conflict) {
+                        results[row.index()] = failed(row.index(), row.request().getEmail(), "Email already in use");
+                    }
+                }
+            }
+        }
+    }
+
+    private static BulkUserResult created(Row row) {
+        return BulkUserResult.builder()
+                .row(row.index())
+                .email(row.request().getEmail())
+                .status("CREATED")
+                .build();
+    }
+
+    private static BulkUserResult failed(int index, String email, String error) {
+        return BulkUserResult.builder()
+                .row(index)
+                .email(email)
+                .status("FAILED")
+                .error(error)
+                .build();
+    }
+}
@@ -5,27 +5,27 @@ import com.ryanm.loan.dto.ChangePasswordRequest;
 import com.ryanm.loan.dto.UserLoginRequest;
 import com.ryanm.loan.dto.UserRegistrationRequest;
 import com.ryanm.loan.dto.UserResponse;
+import com.ryanm.loan.event.ProfileImageStoredEvent;
 import com.ryanm.loan.exception.AuthenticationException;
 import com.ryanm.loan.exception.ResourceNotFoundException;
 import com.ryanm.loan.exception.ValidationException;
 import com.ryanm.loan.model.Role;
 import com.ryanm.loan.model.User;
+import com.ryanm.loan.repository.LoanRepository;
 import com.ryanm.loan.repository.UserRepository;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
 
 import java.time.format.DateTimeFormatter;
 
@@ -34,8 +34,12 @@ import java.time.format.DateTimeFormatter;
 @RequiredArgsConstructor
 public class UserService implements UserDetailsService {
     private final UserRepository userRepository;
+    private final LoanRepository loanRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final ProfileImageService profileImageService;
+    private final ProfileImageStore profileImageStore;
+    private final ApplicationEventPublisher eventPublisher;
 
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
@@ -113,6 +117,7 @@ public class UserService implements UserDetailsService {
         return mapToDto(user);
     }
 
+    @Transactional(readOnly = true)
     public UserResponse getUserByEmail(String email) {
         User user = userRepository.findByEmailAndDeletedFalse(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User", email));
@@ -148,28 +153,15 @@ public class UserService implements UserDetailsService {
             throw new ValidationException("File size exceeds 2MB limit");
         }
 
-        // Save file
-        String uploadDir = "uploads/profile-images";
-        String extension = file.getOriginalFilename() != null && file.getOriginalFilename().contains(".")
-                ? file.getOriginalFilename().substring(file.getOriginalFilename().lastIndexOf('.'))
-                : "";
-        String filename = UUID.randomUUID() + extension;
-        Path uploadPath = Paths.get(uploadDir);
+        // Save file (identical content is stored once), then release the old one for garbage collection
         try {
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-            Path filePath = uploadPath.resolve(filename);
-            file.transferTo(filePath.toFile());
-            // Optionally, delete old image file
-            if (user.getImage() != null && !user.getImage().isEmpty()) {
-                File oldFile = new File(user.getImage());
-                if (oldFile.exists()) {
-                    oldFile.delete();
-                }
-            }
-            user.setImage(filePath.toString());
+            String oldImage = user.getImage();
+            user.setImage(profileImageStore.store(file));
             userRepository.save(user);
+            profileImageStore.release(oldImage);
+            // Thumbnails are generated in the background; the original is served until they exist
+            Path stored = Paths.get(user.getImage());
+            eventPublisher.publishEvent(new ProfileImageStoredEvent(stored.getFileName().toString(), stored));
             log.info("User profile image updated: {}", email);
             return mapToDto(user);
         } catch (IOException e) {
@@ -178,20 +170,20 @@ public class UserService implements UserDetailsService {
         }
     }
 
+    @Transactional
     public void deleteAccount(String email) {
         log.info("User account delete attempt: {}", email);
         User user = userRepository.findByEmailAndDeletedFalse(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User", email));
-        // Delete profile image file if exists
-        if (user.getImage() != null && !user.getImage().isEmpty()) {
-            File oldFile = new File(user.getImage());
-            if (oldFile.exists()) {
-                oldFile.delete();
-            }
-        }
+        String oldImage = user.getImage();
+        user.setImage(null);
         user.setDeleted(true);
         user.setDeletedAt(java.time.LocalDateTime.now());
         userRepository.save(user);
+        // Their loans now report userDeleted, so change-feed clients must pick them up again
+        loanRepository.markChangedByUserId(user.getId(), java.time.LocalDateTime.now());
+        // The file itself is removed asynchronously by the image garbage collector
+        profileImageStore.release(oldImage);
         log.info("User account soft deleted: {}", email);
     }
 
@@ -209,6 +201,7 @@ public class UserService implements UserDetailsService {
                 .name(user.getName())
                 .email(user.getEmail())
                 .image(user.getImage())
+                .imageUrl(profileImageService.toUrl(user.getImage()))
                 .phone(user.getPhone())
                 .role(user.getRole().name())
                 .createdAt(user.getCreatedAt() != null ? user.getCreatedAt().format(FORMATTER) : null)
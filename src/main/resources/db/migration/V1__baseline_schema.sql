@@ -0,0 +1,91 @@
+-- Baseline schema. Written with IF NOT EXISTS so databases previously managed by
+-- ddl-auto=update can be baselined at version 0 and still pick this up.
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    image VARCHAR(255),
+    password VARCHAR(255) NOT NULL,
+    phone VARCHAR(255) NOT NULL,
+    income NUMERIC(38, 2),
+    role ENUM('CUSTOMER', 'MANAGER', 'AUDITOR') NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    deleted_at TIMESTAMP(6),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE IF NOT EXISTS loans (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    amount NUMERIC(38, 2) NOT NULL,
+    term INTEGER NOT NULL,
+    purpose VARCHAR(255) NOT NULL,
+    status ENUM('PENDING', 'ACCEPTED', 'REJECTED') NOT NULL,
+    user_id BIGINT NOT NULL,
+    reviewed_by BIGINT,
+    review_comment VARCHAR(255),
+    claimed_by_id BIGINT,
+    claim_expires_at TIMESTAMP(6),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    CONSTRAINT fk_loans_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_loans_reviewed_by FOREIGN KEY (reviewed_by) REFERENCES users (id)
+);
+
+-- Columns added after the first ddl-auto schemas were created
+ALTER TABLE loans ADD COLUMN IF NOT EXISTS claimed_by_id BIGINT;
+ALTER TABLE loans ADD COLUMN IF NOT EXISTS claim_expires_at TIMESTAMP(6);
+
+CREATE TABLE IF NOT EXISTS stored_images (
+    filename VARCHAR(100) PRIMARY KEY,
+    path VARCHAR(255) NOT NULL,
+    ref_count INTEGER NOT NULL,
+    orphaned_at TIMESTAMP(6),
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS archived_users (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    phone VARCHAR(255),
+    income NUMERIC(38, 2),
+    role ENUM('CUSTOMER', 'MANAGER', 'AUDITOR') NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    deleted_at TIMESTAMP(6),
+    archived_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS archived_loans (
+    id BIGINT PRIMARY KEY,
+    amount NUMERIC(38, 2) NOT NULL,
+    term INTEGER NOT NULL,
+    purpose VARCHAR(255) NOT NULL,
+    status ENUM('PENDING', 'ACCEPTED', 'REJECTED') NOT NULL,
+    user_id BIGINT NOT NULL,
+    user_name VARCHAR(255),
+    reviewed_by_id BIGINT,
+    reviewed_by_name VARCHAR(255),
+    review_comment VARCHAR(255),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    archived_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS loan_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    loan_id BIGINT NOT NULL,
+    type ENUM('APPLIED', 'UPDATED', 'APPROVED', 'REJECTED', 'DELETED') NOT NULL,
+    actor VARCHAR(255) NOT NULL,
+    user_id BIGINT,
+    amount NUMERIC(38, 2),
+    term INTEGER,
+    purpose VARCHAR(255),
+    status ENUM('PENDING', 'ACCEPTED', 'REJECTED'),
+    reviewed_by_id BIGINT,
+    review_comment VARCHAR(255),
+    occurred_at TIMESTAMP(6) NOT NULL
+);
@@ -0,0 +1,19 @@
+-- Explicit indexes for the hot query paths. users.email is already covered by the
+-- unique constraint from V1. Each index lives in its own statement so a failed
+-- build can be retried; H2 has no concurrent index build, so on a large database
+-- run this migration in a quiet window.
+
+CREATE INDEX IF NOT EXISTS idx_loans_user_id ON loans (user_id);
+CREATE INDEX IF NOT EXISTS idx_loans_status ON loans (status);
+CREATE INDEX IF NOT EXISTS idx_loans_created_at ON loans (created_at);
+CREATE INDEX IF NOT EXISTS idx_loans_reviewed_by ON loans (reviewed_by);
+
+-- Review queue: walk PENDING loans in priority order and stop after N rows
+CREATE INDEX IF NOT EXISTS idx_loans_status_created_at ON loans (status, created_at);
+CREATE INDEX IF NOT EXISTS idx_loans_status_amount ON loans (status, amount);
+
+CREATE INDEX IF NOT EXISTS idx_archived_loans_user_id ON archived_loans (user_id);
+CREATE INDEX IF NOT EXISTS idx_archived_users_email ON archived_users (email);
+
+CREATE INDEX IF NOT EXISTS idx_loan_events_loan_id_occurred_at ON loan_events (loan_id, occurred_at);
+CREATE INDEX IF NOT EXISTS idx_loan_events_occurred_at ON loan_events (occurred_at);
@@ -0,0 +1,9 @@
+-- Stale PENDING loans can now end as EXPIRED, and loans carry an optimistic-lock
+-- version so the expiry job and manager reviews cannot overwrite each other.
+
+ALTER TABLE loans ALTER COLUMN status SET DATA TYPE ENUM('PENDING', 'ACCEPTED', 'REJECTED', 'EXPIRED');
+ALTER TABLE archived_loans ALTER COLUMN status SET DATA TYPE ENUM('PENDING', 'ACCEPTED', 'REJECTED', 'EXPIRED');
+ALTER TABLE loan_events ALTER COLUMN status SET DATA TYPE ENUM('PENDING', 'ACCEPTED', 'REJECTED', 'EXPIRED');
+ALTER TABLE loan_events ALTER COLUMN type SET DATA TYPE ENUM('APPLIED', 'UPDATED', 'APPROVED', 'REJECTED', 'DELETED', 'EXPIRED');
+
+ALTER TABLE loans ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,32 @@
+-- Supporting documents (payslips, ID scans) attached to loans and uploaded in fixed-size chunks.
+-- No foreign key to loans: documents stay readable under the loan id after the loan is archived.
+
+CREATE TABLE IF NOT EXISTS loan_documents (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    loan_id BIGINT NOT NULL,
+    uploaded_by_id BIGINT NOT NULL,
+    filename VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    chunk_size INTEGER NOT NULL,
+    total_chunks INTEGER NOT NULL,
+    status ENUM('UPLOADING', 'COMPLETE') NOT NULL,
+    sha256 VARCHAR(64),
+    created_at TIMESTAMP(6) NOT NULL,
+    completed_at TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_loan_documents_loan_id ON loan_documents (loan_id);
+CREATE INDEX IF NOT EXISTS idx_loan_documents_status_created_at ON loan_documents (status, created_at);
+
+-- One row per chunk that arrived with a matching checksum; an upload resumes from the missing ones
+CREATE TABLE IF NOT EXISTS loan_document_chunks (
+    document_id BIGINT NOT NULL,
+    chunk_index INTEGER NOT NULL,
+    size_bytes INTEGER NOT NULL,
+    sha256 VARCHAR(64) NOT NULL,
+    received_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (document_id, chunk_index),
+    CONSTRAINT fk_loan_document_chunks_document FOREIGN KEY (document_id)
+        REFERENCES loan_documents (id) ON DELETE CASCADE
+);
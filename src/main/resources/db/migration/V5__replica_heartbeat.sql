@@ -0,0 +1,7 @@
+-- Single row rewritten on the primary and read back from the read replica to measure replication lag
+CREATE TABLE IF NOT EXISTS replica_heartbeat (
+    id INT PRIMARY KEY,
+    beat_at TIMESTAMP(6) NOT NULL
+);
+
+MERGE INTO replica_heartbeat (id, beat_at) KEY (id) VALUES (1, CURRENT_TIMESTAMP);
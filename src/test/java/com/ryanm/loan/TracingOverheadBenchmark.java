@@ -0,0 +1,283 @@
+package com.ryanm.loan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cost of the tracing profile at its 1% head sampling, against the same build with tracing off. Skipped in the
+ * normal build; run it on an otherwise idle machine with
+ * {@code ./mvnw test -Dtest=TracingOverheadBenchmark -Dbenchmark=true}
+ * (optionally {@code -Dbenchmark.threads=... -Dbenchmark.warmup-seconds=... -Dbenchmark.seconds=...
+ * -Dbenchmark.rounds=...}). Each round boots the application once per mode on a fresh in-memory database, with
+ * spans exported to a stub OTLP collector, and drives authenticated reads over real HTTP: a warm-up, then a
+ * measured window. An unmeasured boot primes the JVM first. Later runs still tend to beat earlier ones, so the
+ * order of the modes alternates between rounds and the overhead is the geometric mean of the per-round
+ * tracing/off ratios, which cancels that drift over an even number of rounds.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TracingOverheadBenchmark {
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    private static final int WARMUP_SECONDS = Integer.getInteger("benchmark.warmup-seconds", 30);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 30);
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 4);
+    private static final int LOANS = 20;
+    private static final String PASSWORD = "benchmark-password";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final AtomicInteger exports = new AtomicInteger();
+    private HttpServer collector;
+
+    @AfterEach
+    void tearDown() {
+        if (collector != null) {
+            collector.stop(0);
+        }
+    }
+
+    @Test
+    void overheadAtOnePercentSampling() throws Exception {
+        startCollector();
+        // The first context in the JVM pays for class loading and JIT that later ones reuse, so it is not measured
+        run(false, 0, null);
+        System.out.printf("Tracing overhead: %d threads, %d s measured per run, %d rounds, %d processors%n",
+                THREADS, SECONDS, ROUNDS, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-14s %10s %12s %10s %10s%n", "mode", "requests", "req/s", "p50 ms", "p99 ms");
+        double throughputLog = 0;
+        double p99Log = 0;
+        long errors = 0;
+        for (int round = 1; round <= ROUNDS; round++) {
+            // Alternating which mode goes first cancels drift that favours whichever runs second
+            boolean tracingFirst = round % 2 == 0;
+            Measurement off = null;
+            Measurement tracing = null;
+            for (boolean traced : new boolean[] {tracingFirst, !tracingFirst}) {
+                Measurement result = new Measurement();
+                int before = exports.get();
+                run(traced, round, result);
+                if (traced) {
+                    tracing = result;
+                } else {
+                    assertEquals(before, exports.get(), "spans exported with tracing off");
+                    off = result;
+                }
+                result.print((traced ? "tracing 0.01" : "off") + " #" + round);
+                errors += result.errors;
+            }
+            throughputLog += Math.log(tracing.throughput() / off.throughput());
+            p99Log += Math.log(tracing.percentile(0.99) / off.percentile(0.99));
+        }
+        assertTrue(exports.get() > 0, "no spans reached the collector with the tracing profile");
+        assertEquals(0, errors, "requests failed");
+
+        System.out.printf("tracing vs off, geometric mean of the rounds: throughput %+.1f%%, p99 %+.1f%%"
+                        + " (%d OTLP exports received)%n",
+                100 * (Math.exp(throughputLog / ROUNDS) - 1), 100 * (Math.exp(p99Log / ROUNDS) - 1), exports.get());
+    }
+
+    // Answers every export with an empty ExportTraceServiceResponse, so the exporter never backs off
+    private void startCollector() throws IOException {
+        collector = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        collector.createContext("/v1/traces", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.readAllBytes();
+            }
+            exports.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", "application/x-protobuf");
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        collector.start();
+    }
+
+    private void run(boolean tracing, int round, Measurement measurement) throws Exception {
+        String mode = tracing ? "tracing" : "off";
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:tracing-benchmark-" + mode + "-" + round + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.file.name=",
+                "--logging.level.root=WARN",
+                "--logging.level.com.ryanm.loan=WARN",
+                // Background jobs and load shedding would add noise of their own; the warm-up below replaces
+                // the startup one
+                "--warmup.enabled=false",
+                "--concurrency-limit.enabled=false",
+                "--archive.enabled=false",
+                "--loan.expiry.enabled=false",
+                "--analytics.snapshot.enabled=false",
+                "--management.otlp.tracing.endpoint=http://127.0.0.1:" + collector.getAddress().getPort()
+                        + "/v1/traces"));
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(LoanApplication.class);
+        if (tracing) {
+            builder.profiles("tracing");
+        }
+        try (ConfigurableApplicationContext context = builder.run(args.toArray(String[]::new))) {
+            String base = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+            String token = givenCustomer(base, mode + round);
+            List<Long> loanIds = new ArrayList<>();
+            for (int i = 0; i < LOANS; i++) {
+                loanIds.add(apply(base, token));
+            }
+            drive(base, token, loanIds, Duration.ofSeconds(WARMUP_SECONDS), null);
+            if (measurement != null) {
+                drive(base, token, loanIds, Duration.ofSeconds(SECONDS), measurement);
+            }
+        }
+    }
+
+    private String givenCustomer(String base, String name) throws Exception {
+        String email = name + "@benchmark.test";
+        send(post(base + "/api/v1/users/signup", null, Map.of("name", name, "email", email, "password", PASSWORD,
+                "phone", "0700000000", "income", 100000)));
+        JsonNode auth = send(post(base + "/api/v1/users/login", null, Map.of("email", email, "password", PASSWORD)));
+        return auth.get("accessToken").asText();
+    }
+
+    private long apply(String base, String token) throws Exception {
+        return send(post(base + "/api/v1/loans/apply", token,
+                Map.of("amount", 1000, "term", 12, "purpose", "Equipment"))).get("id").asLong();
+    }
+
+    // The read mix a customer session produces: own loans, one loan, profile
+    private void drive(String base, String token, List<Long> loanIds, Duration duration, Measurement measurement)
+            throws Exception {
+        List<HttpRequest> requests = new ArrayList<>();
+        requests.add(get(base + "/api/v1/loans/my", token));
+        requests.add(get(base + "/api/v1/users/profile", token));
+        for (long id : loanIds) {
+            requests.add(get(base + "/api/v1/loans/" + id, token));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            long started = System.nanoTime();
+            long deadline = started + duration.toNanos();
+            List<Future<long[]>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                workers.add(pool.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    long errors = 0;
+                    for (int i = offset; System.nanoTime() < deadline; i++) {
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response =
+                                client.send(requests.get(i % requests.size()), HttpResponse.BodyHandlers.discarding());
+                        long elapsed = System.nanoTime() - start;
+                        if (response.statusCode() != 200) {
+                            errors++;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = elapsed;
+                    }
+                    long[] result = Arrays.copyOf(latencies, count + 1);
+                    result[count] = errors;
+                    return result;
+                }));
+            }
+            List<long[]> results = new ArrayList<>();
+            for (Future<long[]> worker : workers) {
+                results.add(worker.get());
+            }
+            long elapsed = System.nanoTime() - started;
+            if (measurement != null) {
+                for (long[] result : results) {
+                    measurement.add(result, result.length - 1);
+                    measurement.errors += result[result.length - 1];
+                }
+                measurement.nanos += elapsed;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private HttpRequest get(String uri, String token) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String uri, String token, Map<String, Object> body) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private JsonNode send(HttpRequest request) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertTrue(response.statusCode() / 100 == 2,
+                () -> request.uri() + " returned " + response.statusCode() + ": " + response.body());
+        return objectMapper.readTree(response.body());
+    }
+
+    private static final class Measurement {
+        private final List<Long> latencies = new ArrayList<>();
+        private long nanos;
+        private long errors;
+        private boolean sorted;
+
+        void add(long[] values, int count) {
+            for (int i = 0; i < count; i++) {
+                latencies.add(values[i]);
+            }
+            sorted = false;
+        }
+
+        double throughput() {
+            return latencies.size() / (nanos / 1e9);
+        }
+
+        double percentile(double p) {
+            if (!sorted) {
+                Collections.sort(latencies);
+                sorted = true;
+            }
+            int index = (int) Math.ceil(p * latencies.size()) - 1;
+            return latencies.get(Math.max(0, index)) / 1e6;
+        }
+
+        void print(String mode) {
+            System.out.printf("%-14s %10d %12.0f %10.2f %10.2f%n", mode, latencies.size(), throughput(),
+                    percentile(0.50), percentile(0.99));
+        }
+    }
+}
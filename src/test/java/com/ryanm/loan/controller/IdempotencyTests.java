@@ -0,0 +1,191 @@
+package com.ryanm.loan.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ryanm.loan.config.IdempotencyFilter;
+import com.ryanm.loan.dto.LoanApplicationRequest;
+import com.ryanm.loan.service.LoanHistoryService;
+import com.ryanm.loan.service.LoanService;
+import com.ryanm.loan.support.IntegrationTestSupport;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Retried applications must create one loan and one history row, however the retries arrive
+class IdempotencyTests extends IntegrationTestSupport {
+    private static final String APPLY = "/api/v1/loans/apply";
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LoanHistoryService loanHistoryService;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void retryIsAnsweredFromTheStoredResponse() throws Exception {
+        String first = apply("retry-1", "1000.00").andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        MvcResult retry = apply("retry-1", "1000.00")
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andReturn();
+
+        assertEquals(first, retry.getResponse().getContentAsString());
+        assertEquals(1, loansCreated());
+        assertEquals(1, historyRows());
+    }
+
+    @Test
+    void concurrentRequestsWithOneKeyRunOnce() throws Exception {
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> bodies = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                bodies.add(pool.submit(() -> {
+                    start.await();
+                    return apply("burst-1", "2500.00").andExpect(status().isOk())
+                            .andReturn().getResponse().getContentAsString();
+                }));
+            }
+            start.countDown();
+            long loanId = objectMapper.readTree(bodies.get(0).get(30, TimeUnit.SECONDS)).get("id").asLong();
+            for (Future<String> body : bodies) {
+                assertEquals(loanId, objectMapper.readTree(body.get(30, TimeUnit.SECONDS)).get("id").asLong());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loansCreated());
+        assertEquals(1, historyRows());
+    }
+
+    @Test
+    void keyReusedWithADifferentBodyIsRejected() throws Exception {
+        apply("reuse-1", "1000.00").andExpect(status().isOk());
+
+        apply("reuse-1", "9000.00")
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value("IDEMPOTENCY_KEY_REUSED"));
+
+        assertEquals(1, loansCreated());
+        assertEquals(1, historyRows());
+    }
+
+    // With room for one key, a second key must not push out the first while it is still running
+    @Test
+    void inFlightKeyIsNeverEvicted() throws Exception {
+        IdempotencyFilter filter = new IdempotencyFilter(objectMapper, 1440, 1, 10_000, 65_536);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        FilterChain applyChain = (request, response) -> {
+            executions.incrementAndGet();
+            running.countDown();
+            try {
+                finish.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            LoanApplicationRequest body =
+                    objectMapper.readValue(request.getInputStream(), LoanApplicationRequest.class);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), loanService.applyForLoan(customer.getEmail(), body));
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<MockHttpServletResponse> first = pool.submit(() -> filtered(filter, applyChain, "slow-1"));
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+
+            MockHttpServletResponse other = filtered(filter, applyChain, "other-1");
+            assertEquals(503, other.getStatus());
+            assertEquals("IDEMPOTENCY_CAPACITY",
+                    objectMapper.readTree(other.getContentAsString()).get("code").asText());
+            Future<MockHttpServletResponse> retry = pool.submit(() -> filtered(filter, applyChain, "slow-1"));
+
+            finish.countDown();
+            JsonNode loan = objectMapper.readTree(first.get(10, TimeUnit.SECONDS).getContentAsString());
+            MockHttpServletResponse replayed = retry.get(10, TimeUnit.SECONDS);
+            assertEquals("true", replayed.getHeader("Idempotent-Replayed"));
+            assertEquals(loan.get("id").asLong(),
+                    objectMapper.readTree(replayed.getContentAsString()).get("id").asLong());
+        } finally {
+            finish.countDown();
+            pool.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(1, loansCreated());
+        assertEquals(1, historyRows());
+    }
+
+    private ResultActions apply(String key, String amount) throws Exception {
+        return mockMvc.perform(post(APPLY)
+                .header(HttpHeaders.AUTHORIZATION, bearer(customer))
+                .header(IdempotencyFilter.HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("amount", new BigDecimal(amount), "term", 12, "purpose", "Equipment"))));
+    }
+
+    // Runs one request through the filter alone, authenticated as the customer
+    private MockHttpServletResponse filtered(IdempotencyFilter filter, FilterChain chain, String key)
+            throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(customer.getEmail(), null, customer.getAuthorities()));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", APPLY);
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(json(Map.of("amount", new BigDecimal("1000.00"), "term", 12, "purpose", "Equipment"))
+                .getBytes());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+
+    private int loansCreated() {
+        return loanRepository.findByUser(customer).size();
+    }
+
+    // The customer's rows only: a buffered event from an earlier test may land after the reset
+    private int historyRows() {
+        loanHistoryService.flush();
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM loan_events WHERE user_id = ?",
+                Integer.class, customer.getId());
+    }
+}
@@ -0,0 +1,137 @@
+package com.ryanm.loan.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.support.IntegrationTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Change feed semantics; the test profile sets loans.changes.settle-ms=0 so changes are visible at once
+class LoanChangeFeedTests extends IntegrationTestSupport {
+    private static final String LOANS = "/api/v1/loans";
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void deletedLoanAppearsAsTombstoneAfterLiveChanges() throws Exception {
+        Loan withdrawn = createLoan(customer, Loan.Status.PENDING, null);
+        Loan accepted = createLoan(customer, Loan.Status.ACCEPTED, manager);
+        mockMvc.perform(delete(LOANS + "/" + withdrawn.getId()).header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isNoContent());
+
+        JsonNode feed = changes(0, 10);
+
+        JsonNode changes = feed.get("changes");
+        assertEquals(2, changes.size());
+        assertEquals("CHANGED", changes.get(0).get("type").asText());
+        assertEquals(accepted.getId(), changes.get(0).get("loanId").asLong());
+        assertEquals("ACCEPTED", changes.get(0).get("loan").get("status").asText());
+        assertEquals("REMOVED", changes.get(1).get("type").asText());
+        assertEquals(withdrawn.getId(), changes.get(1).get("loanId").asLong());
+        assertEquals("DELETED", changes.get(1).get("reason").asText());
+        assertFalse(feed.get("hasMore").asBoolean());
+        assertEquals(changes.get(1).get("seq").asLong(), feed.get("nextCursor").asLong());
+    }
+
+    @Test
+    void pollingFromTheCursorReturnsOnlyNewChanges() throws Exception {
+        Loan first = createLoan(customer, Loan.Status.PENDING, null);
+        createLoan(customer, Loan.Status.PENDING, null);
+        long cursor = changes(0, 10).get("nextCursor").asLong();
+
+        JsonNode idle = changes(cursor, 10);
+        assertEquals(0, idle.get("changes").size());
+        assertEquals(cursor, idle.get("nextCursor").asLong());
+
+        mockMvc.perform(post(LOANS + "/" + first.getId() + "/approve")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(manager))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("status", "ACCEPTED", "reviewComment", "Fine"))))
+                .andExpect(status().isOk());
+
+        JsonNode changes = changes(cursor, 10).get("changes");
+        assertEquals(1, changes.size());
+        assertEquals(first.getId(), changes.get(0).get("loanId").asLong());
+        assertEquals("ACCEPTED", changes.get(0).get("loan").get("status").asText());
+        assertTrue(changes.get(0).get("seq").asLong() > cursor);
+    }
+
+    @Test
+    void pagesFollowTheLimit() throws Exception {
+        createLoan(customer, Loan.Status.PENDING, null);
+        createLoan(customer, Loan.Status.PENDING, null);
+        createLoan(customer, Loan.Status.PENDING, null);
+
+        JsonNode page = changes(0, 2);
+        assertEquals(2, page.get("changes").size());
+        assertTrue(page.get("hasMore").asBoolean());
+
+        JsonNode rest = changes(page.get("nextCursor").asLong(), 2);
+        assertEquals(1, rest.get("changes").size());
+        assertFalse(rest.get("hasMore").asBoolean());
+    }
+
+    @Test
+    void changesAfterARunningWriteBeganWaitUntilItCompletes() throws Exception {
+        CountDownLatch begun = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        // Stands in for a write that has taken a sequence value but not committed yet
+        Thread writer = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            begun.countDown();
+            try {
+                finish.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        writer.start();
+        try {
+            assertTrue(begun.await(5, TimeUnit.SECONDS));
+            Loan loan = createLoan(customer, Loan.Status.PENDING, null);
+
+            JsonNode held = changes(0, 10);
+            assertEquals(0, held.get("changes").size());
+            assertEquals(0, held.get("nextCursor").asLong());
+
+            finish.countDown();
+            writer.join(5000);
+            JsonNode released = changes(0, 10);
+            assertEquals(1, released.get("changes").size());
+            assertEquals(loan.getId(), released.get("changes").get(0).get("loanId").asLong());
+        } finally {
+            finish.countDown();
+        }
+    }
+
+    @Test
+    void customersCannotReadTheFeed() throws Exception {
+        mockMvc.perform(get(LOANS + "/changes").header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isForbidden());
+    }
+
+    private JsonNode changes(long since, int limit) throws Exception {
+        String body = mockMvc.perform(get(LOANS + "/changes")
+                        .param("since", String.valueOf(since))
+                        .param("limit", String.valueOf(limit))
+                        .header(HttpHeaders.AUTHORIZATION, bearer(auditor)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
@@ -0,0 +1,219 @@
+package com.ryanm.loan.controller;
+
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.model.Role;
+import com.ryanm.loan.support.IntegrationTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static com.ryanm.loan.support.SqlBudget.atMost;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Statement budgets per route; every authenticated request includes one user lookup in JwtFilter, and the first
+// exposure check for a user loads live and archived loans into the ledger
+class LoanControllerQueryBudgetTests extends IntegrationTestSupport {
+    private static final String LOANS = "/api/v1/loans";
+
+    @Test
+    void applyForLoan() throws Exception {
+        mockMvc.perform(post(LOANS + "/apply")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("amount", 5000, "term", 12, "purpose", "Car"))))
+                .andExpect(status().isOk())
+                .andExpect(atMost(5));
+    }
+
+    @Test
+    void listAllLoansDoesNotLoadUsersPerRow() throws Exception {
+        createLoan(customer, Loan.Status.PENDING, null);
+        createLoan(customer, Loan.Status.ACCEPTED, manager);
+        createLoan(customer, Loan.Status.REJECTED, manager);
+        mockMvc.perform(get(LOANS).header(HttpHeaders.AUTHORIZATION, bearer(manager)))
+                .andExpect(status().isOk())
+                .andExpect(atMost(4));
+    }
+
+    @Test
+    void getLoanById() throws Exception {
+        Loan loan = createLoan(customer, Loan.Status.PENDING, null);
+        mockMvc.perform(get(LOANS + "/" + loan.getId()).header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isOk())
+                .andExpect(atMost(2));
+    }
+
+    @Test
+    void getLoansByIdsUsesOneQuery() throws Exception {
+        Loan first = createLoan(customer, Loan.Status.PENDING, null);
+        Loan second = createLoan(customer, Loan.Status.ACCEPTED, manager);
+        Loan third = createLoan(customer, Loan.Status.REJECTED, manager);
+        mockMvc.perform(get(LOANS)
+                        .param("ids", third.getId() + "," + first.getId() + "," + second.getId() + ",999999")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(third.getId()))
+                .andExpect(atMost(2));
+    }
+
+    @Test
+    void getLoansByIdsLeavesOutOtherCustomersLoans() throws Exception {
+        Loan own = createLoan(customer, Loan.Status.PENDING, null);
+        Loan other = createLoan(createUser("other@example.com", Role.CUSTOMER), Loan.Status.PENDING, null);
+        mockMvc.perform(get(LOANS)
+                        .param("ids", other.getId() + "," + own.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(own.getId()))
+                .andExpect(atMost(2));
+        mockMvc.perform(get(LOANS)
+                        .param("ids", other.getId() + "," + own.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearer(auditor)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(atMost(2));
+    }
+
+    @Test
+    void approveLoan() throws Exception {
+        Loan loan = createLoan(customer, Loan.Status.PENDING, null);
+        mockMvc.perform(post(LOANS + "/" + loan.getId() + "/approve")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(manager))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("status", "ACCEPTED", "reviewComment", "Fine"))))
+                .andExpect(status().isOk())
+                .andExpect(atMost(6));
+    }
+
+    @Test
+    void rejectLoan() throws Exception {
+        Loan loan = createLoan(customer, Loan.Status.PENDING, null);
+        mockMvc.perform(post(LOANS + "/" + loan.getId() + "/reject")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(manager))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("status", "REJECTED", "reviewComment", "Too risky"))))
+                .andExpect(status().isOk())
+                .andExpect(atMost(6));
+    }
+
+    @Test
+    void updateLoan() throws Exception {
+        Loan loan = createLoan(customer, Loan.Status.PENDING, null);
+        mockMvc.perform(patch(LOANS + "/" + loan.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("amount", 2000, "purpose", "Van"))))
+                .andExpect(status().isOk())
+                .andExpect(atMost(7));
+    }
+
+    @Test
+    void deleteLoan() throws Exception {
+        Loan loan = createLoan(customer, Loan.Status.PENDING, null);
+        mockMvc.perform(delete(LOANS + "/" + loan.getId()).header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isNoContent())
+                .andExpect(atMost(6));
+    }
+
+    @Test
+    void changeFeed() throws Exception {
+        createLoan(customer, Loan.Status.PENDING, null);
+        createLoan(customer, Loan.Status.ACCEPTED, manager);
+        createLoan(customer, Loan.Status.REJECTED, manager);
+        mockMvc.perform(get(LOANS + "/changes").header(HttpHeaders.AUTHORIZATION, bearer(manager)))
+                .andExpect(status().isOk())
+                .andExpect(atMost(3));
+    }
+
+    @Test
+    void myLoans() throws Exception {
+        createLoan(customer, Loan.Status.PENDING, null);
+        createLoan(customer, Loan.Status.ACCEPTED, manager);
+        createLoan(customer, Loan.Status.REJECTED, manager);
+        mockMvc.perform(get(LOANS + "/my").header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isOk())
+                .andExpect(atMost(4));
+    }
+
+    @Test
+    void archivedLoans() throws Exception {
+        long id = archiveLoan();
+        mockMvc.perform(get(LOANS + "/archive").header(HttpHeaders.AUTHORIZATION, bearer(auditor)))
+                .andExpect(status().isOk())
+                .andExpect(atMost(3));
+        mockMvc.perform(get(LOANS + "/archive/" + id).header(HttpHeaders.AUTHORIZATION, bearer(auditor)))
+                .andExpect(status().isOk())
+                .andExpect(atMost(3));
+    }
+
+    @Test
+    void history() throws Exception {
+        mockMvc.perform(get(LOANS + "/history")
+                        .param("from", "2020-01-01T00:00:00")
+                        .param("to", "2100-01-01T00:00:00")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(auditor)))
+                .andExpect(status().isOk())
+                .andExpect(atMost(2));
+    }
+
+    @Test
+    void loanHistory() throws Exception {
+        Loan loan = createLoan(customer, Loan.Status.PENDING, null);
+        mockMvc.perform(get(LOANS + "/" + loan.getId() + "/history").header(HttpHeaders.AUTHORIZATION, bearer(auditor)))
+                .andExpect(status().isOk())
+                .andExpect(atMost(2));
+    }
+
+    @Test
+    void streamSubscription() throws Exception {
+        mockMvc.perform(get(LOANS + "/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header(HttpHeaders.AUTHORIZATION, bearer(manager)))
+                .andExpect(request().asyncStarted())
+                .andExpect(atMost(1));
+    }
+
+    @Test
+    void claimLoans() throws Exception {
+        createLoan(customer, Loan.Status.PENDING, null);
+        createLoan(customer, Loan.Status.PENDING, null);
+        createLoan(customer, Loan.Status.PENDING, null);
+        mockMvc.perform(post(LOANS + "/queue/claim")
+                        .param("count", "3")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(manager)))
+                .andExpect(status().isOk())
+                .andExpect(atMost(5));
+    }
+
+    @Test
+    void releaseClaim() throws Exception {
+        Loan loan = createLoan(customer, Loan.Status.PENDING, null);
+        loan.setClaimedById(manager.getId());
+        loan.setClaimExpiresAt(LocalDateTime.now().plusMinutes(10));
+        loanRepository.save(loan);
+        mockMvc.perform(post(LOANS + "/" + loan.getId() + "/release").header(HttpHeaders.AUTHORIZATION, bearer(manager)))
+                .andExpect(status().isNoContent())
+                .andExpect(atMost(4));
+    }
+
+    private long archiveLoan() {
+        long id = 1_000_000L;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO archived_loans (id, amount, term, purpose, status, user_id, user_name, "
+                        + "created_at, archived_at) VALUES (?, 1000.00, 12, 'Archived', 'ACCEPTED', ?, ?, ?, ?)",
+                id, customer.getId(), customer.getName(), now, now);
+        return id;
+    }
+}
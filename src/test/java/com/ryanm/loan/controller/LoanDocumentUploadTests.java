@@ -0,0 +1,130 @@
+package com.ryanm.loan.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.service.LoanDocumentService;
+import com.ryanm.loan.support.IntegrationTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Chunked uploads; the test profile sets storage.loan-documents.chunk-size=1024 so a few KB spans several chunks
+class LoanDocumentUploadTests extends IntegrationTestSupport {
+    private static final int CHUNK_SIZE = 1024;
+
+    @Test
+    void chunksSentOutOfOrderAcrossADisconnectAssembleTheOriginal() throws Exception {
+        byte[] content = content(CHUNK_SIZE * 3 + 100);
+        String base = documents(createLoan(customer, Loan.Status.PENDING, null));
+        long documentId = start(base, content).get("id").asLong();
+        String document = base + "/" + documentId;
+
+        sendChunk(document, content, 3).andExpect(status().isOk());
+        sendChunk(document, content, 1).andExpect(status().isOk());
+        // A chunk whose bytes do not match its checksum is refused and not recorded
+        byte[] corrupted = chunk(content, 0);
+        corrupted[0] ^= 1;
+        mockMvc.perform(put(document + "/chunks/0")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer))
+                        .header(LoanDocumentService.CHUNK_CHECKSUM_HEADER, sha256(chunk(content, 0)))
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(corrupted))
+                .andExpect(status().isUnprocessableEntity());
+
+        // Resuming: the client asks what is stored and sends only the rest
+        JsonNode progress = read(mockMvc.perform(get(document).header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isOk()));
+        assertEquals("UPLOADING", progress.get("status").asText());
+        assertEquals("[1,3]", progress.get("receivedChunks").toString());
+
+        sendChunk(document, content, 2).andExpect(status().isOk());
+        JsonNode done = read(sendChunk(document, content, 0).andExpect(status().isOk()));
+
+        assertEquals("COMPLETE", done.get("status").asText());
+        assertEquals(sha256(content), done.get("sha256").asText());
+        assertArrayEquals(content, download(document));
+    }
+
+    @Test
+    void resendingAStoredChunkWithOtherBytesKeepsTheVerifiedOnes() throws Exception {
+        byte[] content = content(CHUNK_SIZE * 2);
+        String base = documents(createLoan(customer, Loan.Status.PENDING, null));
+        String document = base + "/" + start(base, content).get("id").asLong();
+        sendChunk(document, content, 0).andExpect(status().isOk());
+
+        // Consistent with its own checksum, but chunk 0 is already stored
+        byte[] other = chunk(content, 0);
+        Arrays.fill(other, (byte) 7);
+        mockMvc.perform(put(document + "/chunks/0")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer))
+                        .header(LoanDocumentService.CHUNK_CHECKSUM_HEADER, sha256(other))
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(other))
+                .andExpect(status().isOk());
+        sendChunk(document, content, 1).andExpect(status().isOk());
+
+        assertArrayEquals(content, download(document));
+    }
+
+    private JsonNode start(String base, byte[] content) throws Exception {
+        return read(mockMvc.perform(post(base)
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("filename", "statement.pdf", "contentType", "application/pdf",
+                                "size", content.length, "sha256", sha256(content)))))
+                .andExpect(status().isCreated()));
+    }
+
+    private ResultActions sendChunk(String document, byte[] content, int index) throws Exception {
+        byte[] chunk = chunk(content, index);
+        return mockMvc.perform(put(document + "/chunks/" + index)
+                .header(HttpHeaders.AUTHORIZATION, bearer(customer))
+                .header(LoanDocumentService.CHUNK_CHECKSUM_HEADER, sha256(chunk))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(chunk));
+    }
+
+    private byte[] download(String document) throws Exception {
+        return mockMvc.perform(get(document + LoanDocumentService.CONTENT_PATH_SUFFIX)
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private JsonNode read(ResultActions result) throws Exception {
+        return objectMapper.readTree(result.andReturn().getResponse().getContentAsString());
+    }
+
+    private static String documents(Loan loan) {
+        return "/api/v1/loans/" + loan.getId() + "/documents";
+    }
+
+    private static byte[] chunk(byte[] content, int index) {
+        int from = index * CHUNK_SIZE;
+        return Arrays.copyOfRange(content, from, Math.min(content.length, from + CHUNK_SIZE));
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -0,0 +1,131 @@
+package com.ryanm.loan.controller;
+
+import com.ryanm.loan.support.IntegrationTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import static com.ryanm.loan.support.SqlBudget.atMost;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Statement budgets per route; every authenticated request includes one user lookup in JwtFilter
+class UserControllerQueryBudgetTests extends IntegrationTestSupport {
+    private static final String USERS = "/api/v1/users";
+
+    @Test
+    void signup() throws Exception {
+        mockMvc.perform(post(USERS + "/signup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(registration("new@example.com"))))
+                .andExpect(status().isOk())
+                .andExpect(atMost(2));
+    }
+
+    @Test
+    void login() throws Exception {
+        mockMvc.perform(post(USERS + "/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("email", customer.getEmail(), "password", PASSWORD))))
+                .andExpect(status().isOk())
+                .andExpect(atMost(1));
+    }
+
+    @Test
+    void profile() throws Exception {
+        mockMvc.perform(get(USERS + "/profile").header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isOk())
+                .andExpect(atMost(2));
+    }
+
+    @Test
+    void logout() throws Exception {
+        mockMvc.perform(post(USERS + "/logout"))
+                .andExpect(status().isOk())
+                .andExpect(atMost(0));
+    }
+
+    @Test
+    void changePassword() throws Exception {
+        mockMvc.perform(patch(USERS + "/password")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("currentPassword", PASSWORD, "newPassword", "another-password"))))
+                .andExpect(status().isOk())
+                .andExpect(atMost(3));
+    }
+
+    @Test
+    void updateProfileImage() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "avatar.png", MediaType.IMAGE_PNG_VALUE, png());
+        mockMvc.perform(multipart(USERS + "/image")
+                        .file(file)
+                        .with(request -> {
+                            request.setMethod("PATCH");
+                            return request;
+                        })
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isOk())
+                .andExpect(atMost(6));
+    }
+
+    @Test
+    void deleteAccount() throws Exception {
+        mockMvc.perform(delete(USERS).header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isNoContent())
+                .andExpect(atMost(4));
+    }
+
+    @Test
+    void refreshToken() throws Exception {
+        String refreshToken = jwtService.generateRefreshToken(customer.getEmail(), customer.getId());
+        mockMvc.perform(post(USERS + "/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("refreshToken", refreshToken))))
+                .andExpect(status().isOk())
+                .andExpect(atMost(1));
+    }
+
+    @Test
+    void missingProfileImage() throws Exception {
+        mockMvc.perform(get(USERS + "/images/missing.png"))
+                .andExpect(status().isNotFound())
+                .andExpect(atMost(0));
+    }
+
+    @Test
+    void bulkRegisterIsSetBased() throws Exception {
+        List<Map<String, Object>> users = List.of(
+                registration("bulk1@example.com"),
+                registration("bulk2@example.com"),
+                registration("bulk3@example.com"));
+        mockMvc.perform(post(USERS + "/bulk")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(manager))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("users", users))))
+                .andExpect(status().isOk())
+                .andExpect(atMost(3));
+    }
+
+    private static Map<String, Object> registration(String email) {
+        return Map.of("name", "New User", "email", email, "password", PASSWORD, "phone", "0711111111",
+                "income", 50000);
+    }
+
+    private static byte[] png() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,141 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.dto.LoanApplicationRequest;
+import com.ryanm.loan.model.ArchivedLoan;
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.repository.ArchivedLoanRepository;
+import com.ryanm.loan.support.IntegrationTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Fixture users earn 100000 and the default multiple is 5, so each customer may owe at most 500000
+class ExposureLedgerTests extends IntegrationTestSupport {
+    private static final BigDecimal CAP = new BigDecimal("500000.00");
+
+    @Autowired
+    private ExposureLedger exposureLedger;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private ArchivedLoanRepository archivedLoanRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentApplicationsStopExactlyAtTheCap() throws Exception {
+        int applications = 10;
+        BigDecimal amount = new BigDecimal("100000.00");
+        ExecutorService pool = Executors.newFixedThreadPool(applications);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < applications; i++) {
+                statuses.add(pool.submit(() -> {
+                    start.await();
+                    return apply(amount);
+                }));
+            }
+            start.countDown();
+            int accepted = 0;
+            int refused = 0;
+            for (Future<Integer> result : statuses) {
+                int status = result.get(30, TimeUnit.SECONDS);
+                if (status == 200) {
+                    accepted++;
+                } else if (status == 409) {
+                    refused++;
+                }
+            }
+            assertEquals(5, accepted);
+            assertEquals(5, refused);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(5, loanRepository.findByUser(customer).size());
+        assertEquals(0, CAP.compareTo(exposureLedger.getExposure(customer.getId())));
+    }
+
+    @Test
+    void rolledBackApplicationReleasesItsReservation() throws Exception {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            loanService.applyForLoan(customer.getEmail(), request(CAP));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(exposureLedger.getExposure(customer.getId())));
+        assertEquals(200, apply(CAP));
+    }
+
+    @Test
+    void archivedApprovedLoansCountUntilTheirTermEnds() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        archive(new BigDecimal("300000.00"), 24, now.minusMonths(13));
+        archive(new BigDecimal("400000.00"), 12, now.minusMonths(13));
+
+        assertEquals(409, apply(new BigDecimal("200000.01")));
+        assertEquals(200, apply(new BigDecimal("200000.00")));
+    }
+
+    @Test
+    void reconciliationPicksUpChangesMadeBehindTheLedger() throws Exception {
+        assertEquals(200, apply(new BigDecimal("1000.00")));
+        // Written straight to the database, as a bulk load or a missed event would
+        createLoan(customer, Loan.Status.ACCEPTED, manager);
+
+        exposureLedger.reconcile();
+
+        assertEquals(0, new BigDecimal("2000.00").compareTo(exposureLedger.getExposure(customer.getId())));
+    }
+
+    private int apply(BigDecimal amount) throws Exception {
+        return mockMvc.perform(post("/api/v1/loans/apply")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("amount", amount, "term", 12, "purpose", "Equipment"))))
+                .andReturn().getResponse().getStatus();
+    }
+
+    private void archive(BigDecimal amount, int term, LocalDateTime decidedAt) {
+        archivedLoanRepository.save(ArchivedLoan.builder()
+                .id(System.nanoTime())
+                .amount(amount)
+                .term(term)
+                .purpose("Equipment")
+                .status(Loan.Status.ACCEPTED)
+                .userId(customer.getId())
+                .createdAt(decidedAt.minusDays(1))
+                .updatedAt(decidedAt)
+                .archivedAt(LocalDateTime.now())
+                .build());
+    }
+
+    private static LoanApplicationRequest request(BigDecimal amount) {
+        LoanApplicationRequest request = new LoanApplicationRequest();
+        request.setAmount(amount);
+        request.setTerm(12);
+        request.setPurpose("Equipment");
+        return request;
+    }
+}
@@ -0,0 +1,162 @@
+package com.ryanm.loan.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.support.IntegrationTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The job is off in the test profile; each test switches it on and runs it directly
+class LoanExpiryServiceTests extends IntegrationTestSupport {
+    @Autowired
+    private LoanExpiryService loanExpiryService;
+
+    @Autowired
+    private ExposureLedger exposureLedger;
+
+    @Autowired
+    private LoanHistoryService loanHistoryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void enableExpiry() {
+        ReflectionTestUtils.setField(loanExpiryService, "enabled", true);
+    }
+
+    @AfterEach
+    void disableExpiry() {
+        ReflectionTestUtils.setField(loanExpiryService, "enabled", false);
+    }
+
+    @Test
+    void staleLoanExpiresWithVersionFeedHistoryAndLedger() throws Exception {
+        long stale = apply("4000.00");
+        long fresh = apply("1000.00");
+        age(stale);
+        Loan before = loanRepository.findById(stale).orElseThrow();
+        long cursor = changes(0).get("nextCursor").asLong();
+
+        loanExpiryService.expireStaleLoans();
+
+        Loan after = loanRepository.findById(stale).orElseThrow();
+        assertEquals(Loan.Status.EXPIRED, after.getStatus());
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(Loan.Status.PENDING, loanRepository.findById(fresh).orElseThrow().getStatus());
+
+        JsonNode feed = changes(cursor).get("changes");
+        assertEquals(1, feed.size());
+        assertEquals(stale, feed.get(0).get("loanId").asLong());
+        assertEquals("EXPIRED", feed.get(0).get("loan").get("status").asText());
+
+        loanHistoryService.flush();
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM loan_events WHERE loan_id = ? AND type = 'EXPIRED' AND actor = 'system'",
+                Integer.class, stale));
+
+        assertEquals(0, new BigDecimal("1000.00").compareTo(exposureLedger.getExposure(customer.getId())));
+    }
+
+    @Test
+    void approvalOfALoanReadBeforeItExpiredConflicts() throws Exception {
+        long stale = apply("4000.00");
+        age(stale);
+
+        // The review reads the loan, the job expires it, then the review writes: the same request, joined to a
+        // transaction the test holds open across the job
+        transactionTemplate.executeWithoutResult(status -> {
+            loanRepository.findById(stale).orElseThrow();
+            Thread job = new Thread(loanExpiryService::expireStaleLoans);
+            job.start();
+            try {
+                job.join(10_000);
+                mockMvc.perform(post("/api/v1/loans/" + stale + "/approve")
+                                .header(HttpHeaders.AUTHORIZATION, bearer(manager))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(json(Map.of("status", "ACCEPTED", "reviewComment", "Fine"))))
+                        .andExpect(status().isConflict())
+                        .andExpect(jsonPath("$.code").value("CONCURRENT_MODIFICATION"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            status.setRollbackOnly();
+        });
+
+        assertEquals(Loan.Status.EXPIRED, loanRepository.findById(stale).orElseThrow().getStatus());
+    }
+
+    @Test
+    void loanLockedByAReviewIsSkipped() throws Exception {
+        long stale = apply("4000.00");
+        age(stale);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread review = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT id FROM loans WHERE id = ? FOR UPDATE", Long.class, stale);
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        review.start();
+        try {
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            loanExpiryService.expireStaleLoans();
+        } finally {
+            release.countDown();
+            review.join(10_000);
+        }
+
+        assertEquals(Loan.Status.PENDING, loanRepository.findById(stale).orElseThrow().getStatus());
+        loanExpiryService.expireStaleLoans();
+        assertEquals(Loan.Status.EXPIRED, loanRepository.findById(stale).orElseThrow().getStatus());
+    }
+
+    private long apply(String amount) throws Exception {
+        String body = mockMvc.perform(post("/api/v1/loans/apply")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(Map.of("amount", new BigDecimal(amount), "term", 12, "purpose", "Equipment"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    // Past the default 30-day cutoff
+    private void age(long loanId) {
+        jdbcTemplate.update("UPDATE loans SET created_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(31)), loanId);
+    }
+
+    private JsonNode changes(long since) throws Exception {
+        String body = mockMvc.perform(get("/api/v1/loans/changes")
+                        .param("since", String.valueOf(since))
+                        .header(HttpHeaders.AUTHORIZATION, bearer(auditor)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
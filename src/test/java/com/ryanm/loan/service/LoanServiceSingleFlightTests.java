@@ -0,0 +1,158 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.config.ReplicaRouting;
+import com.ryanm.loan.dto.LoanResponse;
+import com.ryanm.loan.exception.ResourceNotFoundException;
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.model.User;
+import com.ryanm.loan.repository.LoanRepository;
+import com.ryanm.loan.repository.LoanTombstoneRepository;
+import com.ryanm.loan.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Fan-in on one loan id: the repository is held open until every caller is waiting, then must have run once
+class LoanServiceSingleFlightTests {
+    private static final int CALLERS = 32;
+
+    private final LoanRepository loanRepository = mock(LoanRepository.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger queries = new AtomicInteger();
+    private final List<Thread> callerThreads = new ArrayList<>();
+    private ExecutorService callers;
+    private LoanService loanService;
+
+    @BeforeEach
+    void setUp() {
+        callers = Executors.newFixedThreadPool(CALLERS, runnable -> {
+            Thread thread = new Thread(runnable);
+            synchronized (callerThreads) {
+                callerThreads.add(thread);
+            }
+            return thread;
+        });
+        // No replica: every lookup may share a load
+        @SuppressWarnings("unchecked")
+        ObjectProvider<ReplicaRouting> replicaRouting = mock(ObjectProvider.class);
+        loanService = new LoanService(loanRepository, mock(UserRepository.class),
+                mock(ApplicationEventPublisher.class), mock(ExposureLedger.class), mock(LoanDocumentService.class),
+                mock(LoanTombstoneRepository.class), mock(ChangeFeedWatermark.class), replicaRouting);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentLookupsOfOneLoanShareOneQuery() throws Exception {
+        Loan loan = loan(7L);
+        when(loanRepository.findWithUsersById(anyLong())).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            release.await();
+            return Optional.of(loan);
+        });
+
+        List<Future<LoanResponse>> results = fanIn(7L);
+
+        LoanResponse first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<LoanResponse> result : results) {
+            assertSame(first, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(7L, first.getId());
+        assertEquals(1, queries.get());
+        verify(loanRepository, times(1)).findWithUsersById(7L);
+    }
+
+    @Test
+    void waitingCallersShareTheFailure() throws Exception {
+        when(loanRepository.findWithUsersById(anyLong())).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            release.await();
+            return Optional.empty();
+        });
+
+        List<Future<LoanResponse>> results = fanIn(8L);
+
+        for (Future<LoanResponse> result : results) {
+            Exception failure = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(ResourceNotFoundException.class, failure.getCause());
+        }
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void finishedLoadIsNotReused() {
+        when(loanRepository.findWithUsersById(anyLong())).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            return Optional.of(loan(9L));
+        });
+
+        loanService.getLoanById(9L);
+        loanService.getLoanById(9L);
+
+        assertEquals(2, queries.get());
+    }
+
+    // Starts every caller, then releases the repository once all of them are parked: one inside the query,
+    // the rest waiting on it
+    private List<Future<LoanResponse>> fanIn(long loanId) throws InterruptedException {
+        List<Future<LoanResponse>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(() -> loanService.getLoanById(loanId)));
+        }
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!allCallersParked()) {
+            assertTrue(System.nanoTime() < deadline, "Callers did not all reach the lookup");
+            Thread.sleep(5);
+        }
+        release.countDown();
+        return results;
+    }
+
+    private boolean allCallersParked() {
+        synchronized (callerThreads) {
+            return callerThreads.size() == CALLERS && callerThreads.stream()
+                    .allMatch(thread -> thread.getState() == Thread.State.WAITING);
+        }
+    }
+
+    private static Loan loan(long id) {
+        User owner = User.builder().id(1L).name("customer").email("customer@example.com").build();
+        return Loan.builder()
+                .id(id)
+                .amount(new BigDecimal("1000.00"))
+                .term(12)
+                .purpose("Equipment")
+                .status(Loan.Status.PENDING)
+                .user(owner)
+                .build();
+    }
+}
@@ -0,0 +1,209 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.dto.PortfolioGroupResponse;
+import com.ryanm.loan.dto.PortfolioQuery;
+import com.ryanm.loan.event.LoanChangedEvent;
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.model.LoanEvent;
+import com.ryanm.loan.model.PortfolioGroupBy;
+import com.ryanm.loan.model.Role;
+import com.ryanm.loan.model.User;
+import com.ryanm.loan.support.IntegrationTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Every breakdown is checked against the same GROUP BY run on the loans table
+@TestPropertySource(properties = "analytics.snapshot.enabled=true")
+class PortfolioSnapshotTests extends IntegrationTestSupport {
+    private static final BigDecimal BUCKET = new BigDecimal("1000.00");
+
+    @Autowired
+    private PortfolioSnapshot portfolioSnapshot;
+
+    @Test
+    void everyGroupingMatchesSqlAcrossMonthBoundariesAndChanges() throws Exception {
+        Loan withdrawn = seedBook();
+        portfolioSnapshot.rebuild();
+        assertMatchesSql(portfolioSnapshot);
+
+        // Removed through the API, so the snapshot only learns of it from the event
+        mockMvc.perform(delete("/api/v1/loans/" + withdrawn.getId())
+                        .header(HttpHeaders.AUTHORIZATION, bearer(customer)))
+                .andExpect(status().isNoContent());
+        assertMatchesSql(portfolioSnapshot);
+    }
+
+    @Test
+    void loanArrivingOutOfIdOrderIsInsertedInPlace() {
+        seedBook();
+        Loan gap = createLoan(customer, Loan.Status.PENDING, null);
+        createLoan(customer, Loan.Status.ACCEPTED, manager);
+        jdbcTemplate.update("DELETE FROM loans WHERE id = ?", gap.getId());
+        portfolioSnapshot.rebuild();
+
+        jdbcTemplate.update("INSERT INTO loans (id, amount, term, purpose, status, user_id, created_at, changed_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", gap.getId(), gap.getAmount(), gap.getTerm(),
+                gap.getPurpose(), gap.getStatus().name(), customer.getId(), Timestamp.valueOf(gap.getCreatedAt()),
+                Timestamp.valueOf(gap.getCreatedAt()));
+        portfolioSnapshot.onLoanChanged(LoanChangedEvent.of(LoanEvent.Type.APPLIED, gap, customer.getEmail()));
+
+        assertMatchesSql(portfolioSnapshot);
+    }
+
+    @Test
+    void changeDuringRebuildIsReplayedOntoTheNewColumns() throws Exception {
+        seedBook();
+        Loan decided = createLoan(customer, Loan.Status.PENDING, null);
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        // Holds the rebuild after it has read the table, so the change below is missing from what it loaded
+        JdbcTemplate pausing = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public void query(String sql, RowCallbackHandler handler, Object... args) {
+                super.query(sql, handler, args);
+                loaded.countDown();
+                try {
+                    resume.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        PortfolioSnapshot snapshot = new PortfolioSnapshot(pausing, 2);
+        ReflectionTestUtils.setField(snapshot, "enabled", true);
+        ReflectionTestUtils.setField(snapshot, "loadThreads", 1);
+        Thread rebuild = new Thread(snapshot::rebuild);
+        try {
+            rebuild.start();
+            assertTrue(loaded.await(10, TimeUnit.SECONDS));
+
+            decided.setStatus(Loan.Status.ACCEPTED);
+            decided.setReviewedBy(manager);
+            loanRepository.save(decided);
+            snapshot.onLoanChanged(LoanChangedEvent.of(LoanEvent.Type.APPROVED, decided, manager.getEmail()));
+            resume.countDown();
+            rebuild.join(10_000);
+
+            assertMatchesSql(snapshot);
+        } finally {
+            resume.countDown();
+            snapshot.shutdown();
+        }
+    }
+
+    @Test
+    void outOfRangeAmountsAreRejected() throws Exception {
+        portfolioSnapshot.rebuild();
+        mockMvc.perform(get("/api/v1/analytics/portfolio").param("minAmount", "1e30")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(manager)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value("VALIDATION_ERROR"));
+        mockMvc.perform(get("/api/v1/analytics/portfolio").param("maxAmount", "-1e30")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(manager)))
+                .andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(get("/api/v1/analytics/portfolio").param("groupBy", "AMOUNT").param("bucketSize", "1e30")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(manager)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    // Loans straddling month and year ends (including leap days), across statuses, terms and reviewers;
+    // returns a PENDING one the caller may withdraw
+    private Loan seedBook() {
+        User second = createUser("second@example.com", Role.MANAGER);
+        Object[][] rows = {
+                {"999.99", 12, Loan.Status.PENDING, null, "2023-12-31T23:59:59"},
+                {"1000.00", 12, Loan.Status.ACCEPTED, manager, "2024-01-01T00:00:00"},
+                {"2500.50", 24, Loan.Status.REJECTED, manager, "2024-01-31T23:59:59"},
+                {"1999.99", 24, Loan.Status.ACCEPTED, second, "2024-02-01T00:00:00"},
+                {"150000.00", 36, Loan.Status.ACCEPTED, second, "2024-02-29T12:00:00"},
+                {"100.00", 6, Loan.Status.PENDING, null, "2024-03-01T00:00:00"},
+                {"7300.25", 60, Loan.Status.REJECTED, second, "1999-12-31T23:59:59"},
+                {"88000.00", 48, Loan.Status.EXPIRED, null, "2024-12-31T23:59:59"},
+                {"42000.00", 12, Loan.Status.PENDING, null, "2000-02-29T00:00:00"},
+        };
+        Loan last = null;
+        for (Object[] row : rows) {
+            Loan loan = loanRepository.save(Loan.builder()
+                    .amount(new BigDecimal((String) row[0]))
+                    .term((Integer) row[1])
+                    .purpose("Equipment")
+                    .status((Loan.Status) row[2])
+                    .user(customer)
+                    .reviewedBy((User) row[3])
+                    .build());
+            jdbcTemplate.update("UPDATE loans SET created_at = ? WHERE id = ?",
+                    Timestamp.valueOf(LocalDateTime.parse((String) row[4])), loan.getId());
+            if (loan.getStatus() == Loan.Status.PENDING) {
+                last = loan;
+            }
+        }
+        return last;
+    }
+
+    private void assertMatchesSql(PortfolioSnapshot snapshot) {
+        assertGrouping(snapshot, PortfolioGroupBy.NONE, "'all'", key -> key);
+        assertGrouping(snapshot, PortfolioGroupBy.TERM, "CAST(term AS VARCHAR)", key -> key);
+        assertGrouping(snapshot, PortfolioGroupBy.STATUS, "CAST(status AS VARCHAR)", key -> key);
+        assertGrouping(snapshot, PortfolioGroupBy.REVIEWER,
+                "COALESCE(CAST(reviewed_by AS VARCHAR), 'unreviewed')", key -> key);
+        assertGrouping(snapshot, PortfolioGroupBy.MONTH, "FORMATDATETIME(created_at, 'yyyy-MM')", key -> key);
+        assertGrouping(snapshot, PortfolioGroupBy.AMOUNT, "CAST(FLOOR(amount / 1000) AS VARCHAR)",
+                key -> new BigDecimal(key).multiply(BUCKET).toPlainString());
+    }
+
+    // Compares count, total and per-status counts of every group
+    private void assertGrouping(PortfolioSnapshot snapshot, PortfolioGroupBy groupBy, String keySql,
+                                UnaryOperator<String> formatKey) {
+        Map<String, String> expected = new TreeMap<>();
+        jdbcTemplate.query("SELECT " + keySql + " AS k, COUNT(*), SUM(amount), "
+                + "SUM(CASE WHEN status = 'PENDING' THEN 1 ELSE 0 END), "
+                + "SUM(CASE WHEN status = 'ACCEPTED' THEN 1 ELSE 0 END), "
+                + "SUM(CASE WHEN status = 'REJECTED' THEN 1 ELSE 0 END), "
+                + "SUM(CASE WHEN status = 'EXPIRED' THEN 1 ELSE 0 END) "
+                + "FROM loans GROUP BY " + keySql, (RowCallbackHandler) rs -> expected.put(
+                formatKey.apply(rs.getString(1)),
+                describe(rs.getLong(2), rs.getBigDecimal(3), rs.getLong(4), rs.getLong(5), rs.getLong(6),
+                        rs.getLong(7))));
+
+        List<PortfolioGroupResponse> groups = snapshot.query(PortfolioQuery.builder()
+                .groupBy(groupBy)
+                .bucketSize(BUCKET)
+                .build());
+        Map<String, String> actual = new TreeMap<>();
+        for (PortfolioGroupResponse group : groups) {
+            Map<String, Long> byStatus = group.getCountByStatus();
+            actual.put(group.getKey(), describe(group.getCount(), group.getTotalAmount(),
+                    byStatus.get("PENDING"), byStatus.get("ACCEPTED"), byStatus.get("REJECTED"),
+                    byStatus.get("EXPIRED")));
+        }
+        assertEquals(expected, actual, "Grouping by " + groupBy);
+    }
+
+    private static String describe(long count, BigDecimal total, long pending, long accepted, long rejected,
+                                   long expired) {
+        return count + " loans, " + total.setScale(2).toPlainString() + " total, "
+                + pending + "/" + accepted + "/" + rejected + "/" + expired + " pending/accepted/rejected/expired";
+    }
+}
@@ -0,0 +1,54 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.support.IntegrationTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Releasing the old image is part of the account change: a rollback must leave the reference in place
+class ProfileImageReleaseTests extends IntegrationTestSupport {
+    private static final String FILENAME = "a".repeat(64) + ".png";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void rolledBackAccountDeletionKeepsTheImageReference() {
+        String path = "uploads/profile-images/aa/aa/" + FILENAME;
+        jdbcTemplate.update("INSERT INTO stored_images (filename, path, ref_count, created_at) VALUES (?, ?, 1, ?)",
+                FILENAME, path, new Timestamp(System.currentTimeMillis()));
+        jdbcTemplate.update("UPDATE users SET image = ? WHERE id = ?", path, customer.getId());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.deleteAccount(customer.getEmail());
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT ref_count FROM stored_images WHERE filename = ?", Integer.class, FILENAME));
+        assertFalse(jdbcTemplate.queryForObject(
+                "SELECT deleted FROM users WHERE id = ?", Boolean.class, customer.getId()));
+    }
+
+    @Test
+    void committedAccountDeletionReleasesTheImage() {
+        String path = "uploads/profile-images/aa/aa/" + FILENAME;
+        jdbcTemplate.update("INSERT INTO stored_images (filename, path, ref_count, created_at) VALUES (?, ?, 1, ?)",
+                FILENAME, path, new Timestamp(System.currentTimeMillis()));
+        jdbcTemplate.update("UPDATE users SET image = ? WHERE id = ?", path, customer.getId());
+
+        userService.deleteAccount(customer.getEmail());
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT ref_count FROM stored_images WHERE filename = ?", Integer.class, FILENAME));
+    }
+}
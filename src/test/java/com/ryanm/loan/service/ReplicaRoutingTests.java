@@ -0,0 +1,88 @@
+package com.ryanm.loan.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ryanm.loan.config.ReplicaRouting;
+import com.ryanm.loan.model.Loan;
+import com.ryanm.loan.support.IntegrationTestSupport;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The replica here is a separate database that never receives writes, i.e. one whose replication has stalled
+// within the allowed lag, so whichever database a read used shows in what it returns
+@TestPropertySource(properties = {
+        "datasource.replica.enabled=true",
+        "datasource.replica.url=" + ReplicaRoutingTests.REPLICA_URL,
+        "datasource.replica.max-lag-ms=3600000",
+        "datasource.replica.heartbeat-ms=3600000"
+})
+class ReplicaRoutingTests extends IntegrationTestSupport {
+    static final String REPLICA_URL = "jdbc:h2:mem:loan-test-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private ReplicaRouting replicaRouting;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcTemplate replica;
+    private Loan loan;
+
+    @BeforeEach
+    void setUpReplica() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        replica = new JdbcTemplate(dataSource);
+        replica.update("DELETE FROM loans");
+        replica.update("UPDATE replica_heartbeat SET beat_at = CURRENT_TIMESTAMP WHERE id = 1");
+        replicaRouting.heartbeat();
+        assertTrue(replicaRouting.useReplica());
+        loan = createLoan(customer, Loan.Status.PENDING, null);
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        Long count = readOnly.execute(status -> loanRepository.count());
+        assertEquals(0L, count);
+    }
+
+    @Test
+    void readWriteTransactionsUseThePrimary() {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        Long count = readWrite.execute(status -> loanRepository.count());
+        assertEquals(1L, count);
+    }
+
+    // A cursor moved on by a lagging replica would skip whatever it had not received yet
+    @Test
+    void changeFeedReadsWhatThePrimaryCommittedBeforeTheReplicaHasIt() throws Exception {
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM loans", Integer.class));
+
+        String body = mockMvc.perform(get("/api/v1/loans/changes")
+                        .param("since", "0")
+                        .header(HttpHeaders.AUTHORIZATION, bearer(auditor)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode changes = objectMapper.readTree(body).get("changes");
+        assertEquals(1, changes.size());
+        assertEquals(loan.getId(), changes.get(0).get("loanId").asLong());
+        assertTrue(replicaRouting.useReplica());
+    }
+}
@@ -0,0 +1,69 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.dto.RiskSimulationResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Scaling of the Monte Carlo simulation with pool size, on a fixed seed and book. Skipped in the normal build;
+ * run it on an otherwise idle machine with
+ * {@code ./mvnw test -Dtest=RiskSimulationBenchmark -Dbenchmark=true}
+ * (optionally {@code -Dbenchmark.loans=... -Dbenchmark.scenarios=... -Dbenchmark.runs=...}). Each pool size
+ * gets one warm-up run, then the median simulation time of the measured runs is reported with its speedup
+ * over one thread.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RiskSimulationBenchmark {
+    private static final int LOANS = Integer.getInteger("benchmark.loans", 2_000);
+    private static final int SCENARIOS = Integer.getInteger("benchmark.scenarios", 50_000);
+    private static final int RUNS = Integer.getInteger("benchmark.runs", 5);
+    private static final Duration TIMEOUT = Duration.ofMinutes(10);
+
+    private final RiskSimulationFixture fixture = new RiskSimulationFixture();
+
+    @AfterEach
+    void tearDown() {
+        fixture.shutdown();
+    }
+
+    @Test
+    void speedupByParallelism() throws Exception {
+        fixture.givenBook(LOANS);
+        int processors = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> levels = new TreeSet<>(Arrays.asList(1, 2, 4, processors));
+
+        System.out.printf("Risk simulation: %d loans x %d scenarios, %d runs per pool size, %d processors%n",
+                LOANS, SCENARIOS, RUNS, processors);
+        System.out.printf("%8s %12s %10s %12s%n", "threads", "median ms", "speedup", "efficiency");
+        RiskSimulationResponse reference = null;
+        long baselineMs = 0;
+        for (int parallelism : levels) {
+            RiskSimulationService service = fixture.service(parallelism);
+            RiskSimulationResponse warmUp = RiskSimulationFixture.simulate(service, SCENARIOS, 0L, TIMEOUT);
+            // Same seeds at every pool size, so every level does the same work and reaches the same losses
+            if (reference == null) {
+                reference = warmUp;
+            }
+            assertEquals(reference.getExpectedShortfall99(), warmUp.getExpectedShortfall99());
+            long[] elapsed = new long[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                elapsed[run] = RiskSimulationFixture.simulate(service, SCENARIOS, run + 1, TIMEOUT).getElapsedMs();
+            }
+            Arrays.sort(elapsed);
+            long medianMs = Math.max(1, elapsed[RUNS / 2]);
+            if (parallelism == 1) {
+                baselineMs = medianMs;
+            }
+            double speedup = (double) baselineMs / medianMs;
+            System.out.printf("%8d %12d %10.2f %11.0f%%%n", parallelism, medianMs, speedup,
+                    100 * speedup / parallelism);
+        }
+    }
+}
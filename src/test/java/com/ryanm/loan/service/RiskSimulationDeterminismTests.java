@@ -0,0 +1,55 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.dto.RiskSimulationResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The same seed must give the same losses whatever the pool size; the book is big enough to split into many tasks
+class RiskSimulationDeterminismTests {
+    private static final int LOANS = 300;
+    private static final int SCENARIOS = 20_000;
+
+    private final RiskSimulationFixture fixture = new RiskSimulationFixture();
+
+    @AfterEach
+    void tearDown() {
+        fixture.shutdown();
+    }
+
+    @Test
+    void sameSeedGivesSameLossesOnOneThreadAndOnMany() throws Exception {
+        fixture.givenBook(LOANS);
+
+        RiskSimulationResponse single = simulate(fixture.service(1), 7L);
+        RiskSimulationResponse parallel = simulate(fixture.service(4), 7L);
+
+        assertEquals(1, single.getParallelism());
+        assertEquals(4, parallel.getParallelism());
+        assertEquals(LOANS, parallel.getLoans());
+        assertTrue(single.getExpectedLoss().signum() > 0);
+        assertEquals(single.getExpectedLoss(), parallel.getExpectedLoss());
+        assertEquals(single.getLossStandardDeviation(), parallel.getLossStandardDeviation());
+        assertEquals(single.getValueAtRisk95(), parallel.getValueAtRisk95());
+        assertEquals(single.getValueAtRisk99(), parallel.getValueAtRisk99());
+        assertEquals(single.getExpectedShortfall99(), parallel.getExpectedShortfall99());
+    }
+
+    @Test
+    void differentSeedsGiveDifferentLosses() throws Exception {
+        fixture.givenBook(LOANS);
+        RiskSimulationService service = fixture.service(4);
+
+        assertNotEquals(simulate(service, 7L).getExpectedShortfall99(),
+                simulate(service, 8L).getExpectedShortfall99());
+    }
+
+    private static RiskSimulationResponse simulate(RiskSimulationService service, long seed) throws Exception {
+        return RiskSimulationFixture.simulate(service, SCENARIOS, seed, Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,88 @@
+package com.ryanm.loan.service;
+
+import com.ryanm.loan.dto.RiskSimulationRequest;
+import com.ryanm.loan.dto.RiskSimulationResponse;
+import com.ryanm.loan.repository.UserRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// A seeded synthetic accepted book behind mocks, and simulation services built with the application defaults
+class RiskSimulationFixture {
+    private static final int USERS = 50;
+
+    private final PortfolioSnapshot portfolioSnapshot = mock(PortfolioSnapshot.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final List<RiskSimulationService> services = new ArrayList<>();
+
+    void givenBook(int loans) {
+        Random random = new Random(1);
+        long[] amounts = new long[loans];
+        int[] terms = new int[loans];
+        long[] userIds = new long[loans];
+        List<Object[]> incomes = new ArrayList<>();
+        for (int i = 0; i < loans; i++) {
+            amounts[i] = 100_000 + random.nextInt(5_000_000);
+            terms[i] = 6 + random.nextInt(54);
+            userIds[i] = i % USERS;
+        }
+        for (long userId = 0; userId < USERS; userId++) {
+            incomes.add(new Object[]{userId, BigDecimal.valueOf(20_000 + userId * 1_000)});
+        }
+        when(portfolioSnapshot.acceptedBook())
+                .thenReturn(new PortfolioSnapshot.AcceptedBook(1L, amounts, terms, userIds));
+        when(userRepository.findIncomes(anyCollection())).thenReturn(incomes);
+    }
+
+    RiskSimulationService service(int parallelism) {
+        RiskSimulationService service = new RiskSimulationService(portfolioSnapshot, userRepository, parallelism);
+        // The application.properties defaults
+        ReflectionTestUtils.setField(service, "defaultScenarios", 10_000);
+        ReflectionTestUtils.setField(service, "maxScenarios", 1_000_000);
+        ReflectionTestUtils.setField(service, "defaultSeed", 42L);
+        ReflectionTestUtils.setField(service, "maxJobs", 20);
+        ReflectionTestUtils.setField(service, "maxActiveJobs", 4);
+        ReflectionTestUtils.setField(service, "maxLoanScenarios", 2_000_000_000L);
+        ReflectionTestUtils.setField(service, "baseAnnualPd", 0.02);
+        ReflectionTestUtils.setField(service, "pdPerBurden", 0.10);
+        ReflectionTestUtils.setField(service, "maxAnnualPd", 0.5);
+        ReflectionTestUtils.setField(service, "assetCorrelation", 0.15);
+        ReflectionTestUtils.setField(service, "meanLgd", 0.45);
+        ReflectionTestUtils.setField(service, "lgdVolatility", 0.2);
+        services.add(service);
+        return service;
+    }
+
+    void shutdown() {
+        services.forEach(RiskSimulationService::shutdown);
+        services.clear();
+    }
+
+    static RiskSimulationResponse simulate(RiskSimulationService service, int scenarios, long seed,
+                                           Duration timeout) throws Exception {
+        RiskSimulationRequest request = new RiskSimulationRequest();
+        request.setScenarios(scenarios);
+        request.setSeed(seed);
+        String id = service.start(request).getId();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            RiskSimulationResponse job = service.getJob(id);
+            if (!"RUNNING".equals(job.getStatus())) {
+                assertEquals("COMPLETED", job.getStatus(), job.getError());
+                return job;
+            }
+            assertTrue(System.nanoTime() < deadline, "Simulation did not finish");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.ryanm.loan.support;
+
+import com.ryanm.loan.config.SqlStatistics;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Query count assertions. Use {@link #atMost(long)} with MockMvc to cap the statements one request may run,
+ * so a lazy association touched in a loop (N+1) fails the build instead of reaching production.
+ */
+public final class SqlBudget {
+
+    private SqlBudget() {
+    }
+
+    public static ResultMatcher atMost(long maxStatements) {
+        return result -> {
+            SqlStatistics.Snapshot stats = (SqlStatistics.Snapshot)
+                    result.getRequest().getAttribute(SqlStatistics.REQUEST_ATTRIBUTE);
+            assertNotNull(stats, "No SQL statistics recorded for the request; is sql-stats.enabled on?");
+            assertWithin(stats, maxStatements, result.getRequest().getMethod() + " "
+                    + result.getRequest().getRequestURI());
+        };
+    }
+
+    // For code outside a request, e.g. a service call or a scheduled job run directly from a test
+    public static SqlStatistics.Snapshot measure(Runnable work) {
+        SqlStatistics.start();
+        try {
+            work.run();
+            return SqlStatistics.current();
+        } finally {
+            SqlStatistics.stop();
+        }
+    }
+
+    public static void assertWithin(SqlStatistics.Snapshot stats, long maxStatements, String what) {
+        assertTrue(stats.statements() <= maxStatements, () -> what + " ran " + stats.statements()
+                + " SQL statements (" + stats.rows() + " rows), budget is " + maxStatements);
+    }
+}